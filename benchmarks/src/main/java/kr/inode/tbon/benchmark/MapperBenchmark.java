@@ -0,0 +1,59 @@
+package kr.inode.tbon.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kr.inode.tbon.mapper.TBONMapper;
+
+/**
+ * object API: {@link TBONMapper#writeTo} and {@link TBONMapper#readFrom}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+	@Param({ Payloads.FLAT_MAP, Payloads.DEEP_NESTING, Payloads.PRIMITIVE_ARRAYS, Payloads.LARGE_VALUES,
+			Payloads.POJOS })
+	public String payload;
+
+	private final TBONMapper mapper = new TBONMapper();
+	private Object value;
+	private byte[] encoded;
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+
+	@Setup
+	public void setup() throws IOException {
+		value = Payloads.create(payload);
+		writeTo();
+		encoded = out.toByteArray();
+	}
+
+	@Benchmark
+	public int writeTo() throws IOException {
+		out.reset();
+		mapper.writeTo(out, value);
+		return out.size();
+	}
+
+	@Benchmark
+	public Object readFrom() throws IOException {
+		return mapper.readFrom(new ByteArrayInputStream(encoded));
+	}
+}
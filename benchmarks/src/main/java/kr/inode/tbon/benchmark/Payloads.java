@@ -0,0 +1,195 @@
+package kr.inode.tbon.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * benchmark payloads. every payload is built from a fixed seed, so results are comparable between runs.
+ */
+public final class Payloads {
+	public static final String FLAT_MAP = "flatMap";
+	public static final String DEEP_NESTING = "deepNesting";
+	public static final String PRIMITIVE_ARRAYS = "primitiveArrays";
+	public static final String LARGE_VALUES = "largeValues";
+	public static final String POJOS = "pojos";
+
+	public static class Record {
+		public String name;
+		private long id;
+		private double score;
+		private boolean active;
+		private String host;
+		private List<String> tags;
+
+		public long getId() {
+			return id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public double getScore() {
+			return score;
+		}
+
+		public void setScore(double score) {
+			this.score = score;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public void setActive(boolean active) {
+			this.active = active;
+		}
+
+		public String getHost() {
+			return host;
+		}
+
+		public void setHost(String host) {
+			this.host = host;
+		}
+
+		public List<String> getTags() {
+			return tags;
+		}
+
+		public void setTags(List<String> tags) {
+			this.tags = tags;
+		}
+	}
+
+	private Payloads() {
+	}
+
+	public static Object create(String name) {
+		final Random random = new Random(0x7b0aL);
+		switch (name) {
+		case FLAT_MAP:
+			return flatMap(random);
+		case DEEP_NESTING:
+			return deepNesting(random, 24);
+		case PRIMITIVE_ARRAYS:
+			return primitiveArrays(random);
+		case LARGE_VALUES:
+			return largeValues(random);
+		case POJOS:
+			return pojos(random);
+		default:
+			throw new IllegalArgumentException("unknown payload " + name);
+		}
+	}
+
+	/**
+	 * 64 entries of mixed scalar values, as a typical event or log record.
+	 */
+	private static Map<String, Object> flatMap(Random random) {
+		final Map<String, Object> map = new LinkedHashMap<>();
+		for (int i = 0; i < 64; ++i) {
+			switch (i % 6) {
+			case 0:
+				map.put("field" + i, random.nextInt());
+				break;
+			case 1:
+				map.put("field" + i, random.nextLong());
+				break;
+			case 2:
+				map.put("field" + i, random.nextDouble());
+				break;
+			case 3:
+				map.put("field" + i, random.nextBoolean());
+				break;
+			case 4:
+				map.put("field" + i, "value-" + random.nextInt(1000));
+				break;
+			default:
+				map.put("field" + i, random.nextInt(100));
+				break;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * nested objects and arrays, each level holds a few scalars, a small array and the next level.
+	 */
+	private static Map<String, Object> deepNesting(Random random, int depth) {
+		final Map<String, Object> map = new LinkedHashMap<>();
+		map.put("depth", depth);
+		map.put("label", "level-" + depth);
+		final List<Object> list = new ArrayList<>();
+		for (int i = 0; i < 4; ++i) {
+			list.add(random.nextInt(10000));
+		}
+		map.put("items", list);
+		if (depth > 0) {
+			map.put("child", deepNesting(random, depth - 1));
+		}
+		return map;
+	}
+
+	/**
+	 * telemetry style vectors.
+	 */
+	private static Map<String, Object> primitiveArrays(Random random) {
+		final int len = 4096;
+		final int[] ints = new int[len];
+		final long[] longs = new long[len];
+		final double[] doubles = new double[len];
+		for (int i = 0; i < len; ++i) {
+			ints[i] = random.nextInt();
+			longs[i] = random.nextLong();
+			doubles[i] = random.nextDouble();
+		}
+
+		final Map<String, Object> map = new LinkedHashMap<>();
+		map.put("ints", ints);
+		map.put("longs", longs);
+		map.put("doubles", doubles);
+		return map;
+	}
+
+	/**
+	 * a large string and an octet below the reader's temporary file threshold.
+	 */
+	private static Map<String, Object> largeValues(Random random) {
+		final StringBuilder sb = new StringBuilder(64 * 1024);
+		while (sb.length() < 64 * 1024) {
+			sb.append("lorem ipsum dolor sit amet ").append(random.nextInt(100)).append(' ');
+		}
+		final byte[] octet = new byte[16 * 1024];
+		random.nextBytes(octet);
+
+		final Map<String, Object> map = new LinkedHashMap<>();
+		map.put("text", sb.toString());
+		map.put("octet", octet);
+		return map;
+	}
+
+	/**
+	 * array of small homogeneous POJOs.
+	 */
+	private static List<Object> pojos(Random random) {
+		final List<Object> list = new ArrayList<>();
+		for (int i = 0; i < 256; ++i) {
+			final Record record = new Record();
+			record.name = "record-" + i;
+			record.setId(random.nextLong());
+			record.setScore(random.nextDouble());
+			record.setActive(random.nextBoolean());
+			record.setHost("host-" + random.nextInt(8) + ".example.com");
+			final List<String> tags = new ArrayList<>();
+			tags.add("tag" + random.nextInt(4));
+			tags.add("tag" + random.nextInt(4));
+			record.setTags(tags);
+			list.add(record);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,66 @@
+package kr.inode.tbon.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import kr.inode.tbon.steak.SteakGenerator;
+import kr.inode.tbon.steak.SteakParser;
+
+/**
+ * raw token API: {@link SteakGenerator} and {@link SteakParser} without the mapper.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SteakTokenBenchmark {
+	@Param({ Payloads.FLAT_MAP, Payloads.DEEP_NESTING, Payloads.PRIMITIVE_ARRAYS, Payloads.LARGE_VALUES,
+			Payloads.POJOS })
+	public String payload;
+
+	private Object value;
+	private byte[] encoded;
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+
+	@Setup
+	public void setup() throws IOException {
+		value = Payloads.create(payload);
+		encode();
+		encoded = out.toByteArray();
+	}
+
+	@Benchmark
+	public int encode() throws IOException {
+		out.reset();
+		try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+			TokenCodec.emit(generator, value);
+		}
+		return out.size();
+	}
+
+	@Benchmark
+	public void decode(Blackhole bh) throws IOException {
+		try (SteakParser parser = new SteakParser(Channels.newChannel(new ByteArrayInputStream(encoded)))) {
+			parser.next();
+			TokenCodec.consume(parser, bh);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package kr.inode.tbon.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import kr.inode.tbon.TBONGenerator;
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+
+/**
+ * hand written token level encoder and decoder of the benchmark payloads. keeps mapper overhead (dispatch,
+ * reflection, boxing) out of the token API numbers.
+ */
+final class TokenCodec {
+	private TokenCodec() {
+	}
+
+	static void emit(TBONGenerator generator, Object obj) throws IOException {
+		if (obj == null) {
+			generator.writeNull();
+		} else if (obj instanceof String) {
+			generator.write((String) obj);
+		} else if (obj instanceof Integer) {
+			generator.write(((Integer) obj).intValue());
+		} else if (obj instanceof Long) {
+			generator.write(((Long) obj).longValue());
+		} else if (obj instanceof Double) {
+			generator.write(((Double) obj).doubleValue());
+		} else if (obj instanceof Boolean) {
+			generator.write(((Boolean) obj).booleanValue());
+		} else if (obj instanceof byte[]) {
+			generator.write((byte[]) obj);
+		} else if (obj instanceof int[]) {
+			final int[] arr = (int[]) obj;
+			generator.writeStartPrimitiveArray(int.class, arr.length);
+			for (int v : arr) {
+				generator.write(v);
+			}
+			generator.writeEndArray();
+		} else if (obj instanceof long[]) {
+			final long[] arr = (long[]) obj;
+			generator.writeStartPrimitiveArray(long.class, arr.length);
+			for (long v : arr) {
+				generator.write(v);
+			}
+			generator.writeEndArray();
+		} else if (obj instanceof double[]) {
+			final double[] arr = (double[]) obj;
+			generator.writeStartPrimitiveArray(double.class, arr.length);
+			for (double v : arr) {
+				generator.write(v);
+			}
+			generator.writeEndArray();
+		} else if (obj instanceof Map) {
+			final Map<?, ?> map = (Map<?, ?>) obj;
+			generator.writeStartObject(map.size());
+			for (Entry<?, ?> entry : map.entrySet()) {
+				generator.write(entry.getKey().toString());
+				emit(generator, entry.getValue());
+			}
+			generator.writeEndObject();
+		} else if (obj instanceof List) {
+			final List<?> list = (List<?>) obj;
+			generator.writeStartArray(list.size());
+			for (Object element : list) {
+				emit(generator, element);
+			}
+			generator.writeEndArray();
+		} else if (obj instanceof Payloads.Record) {
+			final Payloads.Record record = (Payloads.Record) obj;
+			generator.writeCustomType(Payloads.Record.class.getName());
+			generator.writeStartObject(6);
+			generator.write("name");
+			generator.write(record.name);
+			generator.write("id");
+			generator.write(record.getId());
+			generator.write("score");
+			generator.write(record.getScore());
+			generator.write("active");
+			generator.write(record.isActive());
+			generator.write("host");
+			generator.write(record.getHost());
+			generator.write("tags");
+			emit(generator, record.getTags());
+			generator.writeEndObject();
+		} else {
+			throw new IOException("unsupported benchmark value " + obj.getClass());
+		}
+	}
+
+	/**
+	 * consumes current value of parser, including all children of structures.
+	 */
+	static void consume(TBONParser parser, Blackhole bh) throws IOException {
+		switch (parser.currentToken()) {
+		case Int8:
+			bh.consume(parser.getByte());
+			break;
+		case Int16:
+			bh.consume(parser.getShort());
+			break;
+		case Int32:
+			bh.consume(parser.getInt());
+			break;
+		case Int64:
+			bh.consume(parser.getLong());
+			break;
+		case Float32:
+			bh.consume(parser.getFloat());
+			break;
+		case Float64:
+			bh.consume(parser.getDouble());
+			break;
+		case Null:
+		case True:
+		case False:
+			bh.consume(parser.getBoolean());
+			break;
+		case String:
+			bh.consume(parser.readString());
+			break;
+		case Octet:
+			bh.consume(parser.readOctet());
+			break;
+		case CustomType:
+			bh.consume(parser.getCustomTypeName());
+			parser.next();
+			consume(parser, bh);
+			break;
+		case Array:
+		case Object:
+		case PrimitiveArrayOfBoolean:
+		case PrimitiveArrayOfShort:
+		case PrimitiveArrayOfInt:
+		case PrimitiveArrayOfLong:
+		case PrimitiveArrayOfFloat:
+		case PrimitiveArrayOfDouble:
+		case PrimitiveArrayOfChar:
+			while (parser.nextToken() != TBONToken.EndOfStructure) {
+				consume(parser, bh);
+			}
+			break;
+		default:
+			throw new IOException("unexpected token " + parser.currentToken());
+		}
+	}
+}
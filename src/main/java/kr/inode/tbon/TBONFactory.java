@@ -3,6 +3,7 @@ package kr.inode.tbon;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
@@ -11,6 +12,11 @@ public interface TBONFactory {
 
 	TBONParser createParser(ReadableByteChannel in) throws IOException;
 
+	/**
+	 * parser on remaining bytes of buffer, without copying input.
+	 */
+	TBONParser createParser(ByteBuffer in) throws IOException;
+
 	TBONGenerator createGenerator(OutputStream out) throws IOException;
 
 	TBONGenerator createGenerator(WritableByteChannel out) throws IOException;
@@ -1,16 +1,29 @@
 package kr.inode.tbon;
 
 import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Calendar;
 import java.util.Date;
 
-public interface TBONGenerator extends Closeable {
+public interface TBONGenerator extends Closeable, Flushable {
+	/**
+	 * write buffered bytes to output.
+	 */
+	@Override
+	void flush() throws IOException;
+
 	void writeNull() throws IOException;
 
 	void write(boolean value) throws IOException;
@@ -59,13 +72,87 @@ public interface TBONGenerator extends Closeable {
 
 	void writeStartPrimitiveArray(Class<?> type, int count) throws IOException;
 
+	/**
+	 * write whole primitive array, same as writeStartPrimitiveArray, write of each element and writeEndArray.
+	 */
+	void write(boolean[] value) throws IOException;
+
+	void write(boolean[] value, int offset, int length) throws IOException;
+
+	void write(short[] value) throws IOException;
+
+	void write(short[] value, int offset, int length) throws IOException;
+
+	void write(int[] value) throws IOException;
+
+	void write(int[] value, int offset, int length) throws IOException;
+
+	void write(long[] value) throws IOException;
+
+	void write(long[] value, int offset, int length) throws IOException;
+
+	void write(float[] value) throws IOException;
+
+	void write(float[] value, int offset, int length) throws IOException;
+
+	void write(double[] value) throws IOException;
+
+	void write(double[] value, int offset, int length) throws IOException;
+
+	void write(char[] value) throws IOException;
+
+	void write(char[] value, int offset, int length) throws IOException;
+
+	/**
+	 * write remaining elements of buffer as primitive array.
+	 */
+	void write(ShortBuffer value) throws IOException;
+
+	void write(IntBuffer value) throws IOException;
+
+	void write(LongBuffer value) throws IOException;
+
+	void write(FloatBuffer value) throws IOException;
+
+	void write(DoubleBuffer value) throws IOException;
+
 	void writeEndArray() throws IOException;
 
 	void writeStartObject() throws IOException;
 
 	void writeStartObject(int count) throws IOException;
 
+	/**
+	 * start an object of keys, values are written in order of keys. generator may write keys once and refer them
+	 * by an id on later objects of same keys.
+	 * 
+	 * @return true if keys are written by generator, only values should be written. false if each key should be
+	 *         written before the value, as {@link #writeStartObject(int)}.
+	 */
+	boolean writeStartObject(String[] keys) throws IOException;
+
 	void writeEndObject() throws IOException;
 
 	void writeCustomType(String typeName) throws IOException;
+
+	/**
+	 * id of next started array or object, arrays and objects are numbered from 0 in order of start.
+	 * 
+	 * @return id, -1 if generator does not write references.
+	 */
+	int nextReferenceId();
+
+	/**
+	 * write a reference to an array or object written before.
+	 * 
+	 * @param id
+	 *            id of the array or object by {@link #nextReferenceId()}
+	 */
+	void writeReference(int id) throws IOException;
+
+	/**
+	 * reuse generator on new output. state is cleared and buffers are kept, header is written. generated bytes
+	 * should be flushed before.
+	 */
+	void reset(WritableByteChannel out) throws IOException;
 }
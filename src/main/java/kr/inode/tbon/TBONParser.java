@@ -5,17 +5,38 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Calendar;
 import java.util.Date;
 
 public interface TBONParser extends Closeable {
 
+	/**
+	 * read next token.
+	 * 
+	 * @return false if input is ended between values, current token is {@link TBONToken#NotAvailable}.
+	 */
 	boolean next() throws IOException;
 
 	TBONToken currentToken();
 
 	TBONToken nextToken() throws IOException;
 
+	/**
+	 * read next value and skip all of its content, as {@link #next()} and {@link #skipChildren()}.
+	 * 
+	 * @return false if input is ended between values.
+	 */
+	boolean skipValue() throws IOException;
+
+	/**
+	 * skip content of current token without decoding: children of array, object and primitive array, bytes of
+	 * string and octet, and typed value of custom type. current token is {@link TBONToken#EndOfStructure} after
+	 * skip of structure or custom type. nothing is skipped for other tokens.
+	 */
+	void skipChildren() throws IOException;
+
 	boolean getBoolean();
 
 	byte getByte();
@@ -51,10 +72,60 @@ public interface TBONParser extends Closeable {
 
 	String readString() throws IOException;
 
+	/**
+	 * read string of object key. parser may return same instance for same key.
+	 */
+	String readKey() throws IOException;
+
 	byte[] readOctet() throws IOException;
 
 	void readOctet(OutputStream out) throws IOException;
 
+	/**
+	 * read octet or string bytes as a buffer. parser on a ByteBuffer returns a slice of it without copy.
+	 * 
+	 * @return bytes of current octet or string
+	 */
+	ByteBuffer readOctetBuffer() throws IOException;
+
+	/**
+	 * read all remaining elements of current boolean[] and end of the array.
+	 * 
+	 * @return elements
+	 */
+	boolean[] readBooleanArray() throws IOException;
+
+	short[] readShortArray() throws IOException;
+
+	int[] readIntArray() throws IOException;
+
+	long[] readLongArray() throws IOException;
+
+	float[] readFloatArray() throws IOException;
+
+	double[] readDoubleArray() throws IOException;
+
+	char[] readCharArray() throws IOException;
+
+	/**
+	 * read elements of current boolean[] into dst. end of the array is read after the last element.
+	 * 
+	 * @return count of read elements, -1 if no more element.
+	 */
+	int readArray(boolean[] dst, int offset, int length) throws IOException;
+
+	int readArray(short[] dst, int offset, int length) throws IOException;
+
+	int readArray(int[] dst, int offset, int length) throws IOException;
+
+	int readArray(long[] dst, int offset, int length) throws IOException;
+
+	int readArray(float[] dst, int offset, int length) throws IOException;
+
+	int readArray(double[] dst, int offset, int length) throws IOException;
+
+	int readArray(char[] dst, int offset, int length) throws IOException;
+
 	/**
 	 * element count of array, object, or octet.
 	 * 
@@ -67,4 +138,17 @@ public interface TBONParser extends Closeable {
 	 * @return
 	 */
 	String getCustomTypeName();
+
+	/**
+	 * id of current array or object, or referred id of current {@link TBONToken#Reference}. arrays and objects are
+	 * numbered from 0 in order of start, including skipped ones.
+	 * 
+	 * @return id, -1 if input is not written with references or current token has no id.
+	 */
+	int getReferenceId();
+
+	/**
+	 * reuse parser on new input. state is cleared and buffers are kept, header of input is read.
+	 */
+	void reset(ReadableByteChannel in) throws IOException;
 }
@@ -8,6 +8,10 @@ public enum TBONToken {
 	 * before stream or end of stream.
 	 */
 	NotAvailable,
+	/**
+	 * next token is not fully available on non-blocking parser, feed more input.
+	 */
+	NeedMoreInput,
 	/**
 	 * null value
 	 */
@@ -120,6 +124,10 @@ public enum TBONToken {
 	 * custom typed
 	 */
 	CustomType,
+	/**
+	 * reference to an array or object read before, see {@link TBONParser#getReferenceId()}
+	 */
+	Reference,
 	/**
 	 * end of array or end of object
 	 */
@@ -0,0 +1,25 @@
+package kr.inode.tbon.mapper;
+
+/**
+ * how {@link TBONWriter} handles an object which is already being written by an outer value.
+ */
+public enum CyclePolicy {
+	/**
+	 * write null instead of the object.
+	 */
+	NULL,
+	/**
+	 * throw IOException.
+	 */
+	FAIL,
+	/**
+	 * do not track written objects, for trusted acyclic values. a cycle fails when max depth is exceeded.
+	 */
+	IGNORE,
+	/**
+	 * write a reference to the object, the same for an object written before in the same top level value. needs
+	 * a generator writes references, e.g. {@link kr.inode.tbon.steak.SteakGenerator} with references. only maps,
+	 * collections, arrays and POJOs are referred, others are written as {@link #NULL}.
+	 */
+	REFERENCE
+}
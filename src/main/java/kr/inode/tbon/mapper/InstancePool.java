@@ -0,0 +1,37 @@
+package kr.inode.tbon.mapper;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * bounded lock-free pool of reusable instances. instances over capacity are dropped.
+ */
+final class InstancePool<T> {
+	private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final int capacity;
+
+	InstancePool(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return pooled instance, null if empty
+	 */
+	T poll() {
+		final T instance = queue.poll();
+		if (instance != null) {
+			size.decrementAndGet();
+		}
+		return instance;
+	}
+
+	void offer(T instance) {
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			return;
+		}
+		queue.offer(instance);
+	}
+}
@@ -0,0 +1,29 @@
+package kr.inode.tbon.mapper;
+
+/**
+ * how {@link TBONReader} reads a large octet, of the threshold length or more, or an octet of unknown length. a
+ * smaller octet is always read as byte[]. a POJO property of byte[], {@link java.nio.ByteBuffer} or
+ * {@link java.io.InputStream} takes any of them.
+ */
+public enum OctetPolicy {
+	/**
+	 * read as byte[] on heap.
+	 */
+	BYTES,
+	/**
+	 * read as {@link java.nio.ByteBuffer}. a slice of input without copy if parser reads a ByteBuffer, e.g. a
+	 * mapped file.
+	 */
+	BUFFER,
+	/**
+	 * spill to a temporary file and read as a read-only {@link java.nio.MappedByteBuffer} of it, bytes are not
+	 * kept on heap. the file is deleted on close of its channel right after mapping, the mapping stays valid until
+	 * it is released. delete fails on a platform which does not delete a mapped file, e.g. Windows.
+	 */
+	MAPPED,
+	/**
+	 * spill to a temporary file and read as {@link java.io.File}, the default. the caller owns the file and should
+	 * delete it.
+	 */
+	FILE
+}
@@ -0,0 +1,307 @@
+package kr.inode.tbon.mapper;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
+
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+
+/**
+ * properties of a POJO class, discovered once per class.
+ */
+final class PojoDescriptor {
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+	private static final class Setter {
+		final MethodHandle handle;
+		final Class<?> type;
+
+		Setter(MethodHandle handle, Class<?> type) {
+			this.handle = handle;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * custom type name bound to a descriptor, with the class loader which resolved the name.
+	 */
+	static final class Binding {
+		final ClassLoader loader;
+		final PojoDescriptor descriptor;
+
+		Binding(ClassLoader loader, PojoDescriptor descriptor) {
+			this.loader = loader;
+			this.descriptor = descriptor;
+		}
+	}
+
+	private static final ClassValue<PojoDescriptor> DESCRIPTORS = new ClassValue<PojoDescriptor>() {
+		@Override
+		protected PojoDescriptor computeValue(Class<?> type) {
+			return new PojoDescriptor(type);
+		}
+	};
+
+	static PojoDescriptor of(Class<?> cls) {
+		return DESCRIPTORS.get(cls);
+	}
+
+	/**
+	 * descriptor of custom type name, resolved on context class loader.
+	 *
+	 * @param bindings
+	 *            cache of resolved names
+	 */
+	static PojoDescriptor forName(String typeName, ConcurrentMap<String, Binding> bindings) throws IOException {
+		final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		final Binding binding = bindings.get(typeName);
+		if (binding != null && binding.loader == loader) {
+			return binding.descriptor;
+		}
+
+		try {
+			final PojoDescriptor descriptor = of(Class.forName(typeName, true, loader));
+			bindings.put(typeName, new Binding(loader, descriptor));
+			return descriptor;
+		} catch (ClassNotFoundException | LinkageError e) {
+			throw new IOException("TBONReader: cannot read custom type " + typeName, e);
+		}
+	}
+
+	private final String typeName;
+	private final String[] names;
+	private final MethodHandle[] getters;
+	private final IOException error;
+	private final MethodHandle constructor;
+	private final Map<String, Setter> setters;
+	private final IOException readError;
+
+	private PojoDescriptor(Class<?> cls) {
+		this.typeName = cls.getName();
+
+		// public getters first, subclass first. public fields are used only if no getter.
+		// superclasses of JDK, e.g. Enum, are not scanned.
+		final Map<String, Object> accessors = new LinkedHashMap<>();
+		for (Class<?> methodCls = cls; methodCls != null && methodCls != Object.class; methodCls = methodCls
+				.getSuperclass()) {
+			if (methodCls != cls && methodCls.getName().startsWith("java.")) {
+				break;
+			}
+			for (final Method method : methodCls.getDeclaredMethods()) {
+				final int modifiers = method.getModifiers();
+				if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)
+						|| method.getParameterTypes().length != 0) {
+					continue;
+				}
+
+				final String key = propertyName(method.getName());
+				if (key != null && !accessors.containsKey(key)) {
+					accessors.put(key, method);
+				}
+			}
+		}
+
+		for (final Field field : cls.getFields()) {
+			final int modifiers = field.getModifiers();
+			if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+				continue;
+			}
+			if (!accessors.containsKey(field.getName())) {
+				accessors.put(field.getName(), field);
+			}
+		}
+
+		final int size = accessors.size();
+		final String[] names = new String[size];
+		final MethodHandle[] getters = new MethodHandle[size];
+		IOException error = null;
+
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		int i = 0;
+		for (final Entry<String, Object> entry : accessors.entrySet()) {
+			names[i] = entry.getKey();
+			final Object accessor = entry.getValue();
+			try {
+				if (accessor instanceof Method) {
+					getters[i] = lookup.unreflect((Method) accessor).asType(GETTER_TYPE);
+				} else {
+					getters[i] = lookup.unreflectGetter((Field) accessor).asType(GETTER_TYPE);
+				}
+			} catch (IllegalAccessException e) {
+				error = new IOException("cannot write pojo: access error on " + accessor, e);
+				break;
+			}
+			++i;
+		}
+
+		this.names = names;
+		this.getters = getters;
+		this.error = error;
+
+		// setters first, public fields are used only if no setter.
+		// a setter which cannot be bound is skipped, as a property without setter.
+		final Map<String, Setter> setters = new HashMap<>();
+		for (final Method method : cls.getMethods()) {
+			if (Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length != 1) {
+				continue;
+			}
+
+			final String methodName = method.getName();
+			if (methodName.length() > 3 && methodName.startsWith("set")) {
+				final String key = Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+				if (!setters.containsKey(key)) {
+					try {
+						setters.put(key, new Setter(lookup.unreflect(method).asType(SETTER_TYPE),
+								method.getParameterTypes()[0]));
+					} catch (IllegalAccessException e) {
+						// continue to next method, cannot set
+					}
+				}
+			}
+		}
+
+		for (final Field field : cls.getFields()) {
+			final int modifiers = field.getModifiers();
+			if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers)) {
+				continue;
+			}
+			if (!setters.containsKey(field.getName())) {
+				try {
+					setters.put(field.getName(),
+							new Setter(lookup.unreflectSetter(field).asType(SETTER_TYPE), field.getType()));
+				} catch (IllegalAccessException e) {
+					// continue to next field, cannot set
+				}
+			}
+		}
+
+		MethodHandle constructor = null;
+		IOException readError = null;
+		try {
+			constructor = lookup.findConstructor(cls, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			readError = new IOException("TBONReader: cannot read custom type " + typeName, e);
+		}
+
+		this.constructor = constructor;
+		this.setters = setters;
+		this.readError = readError;
+	}
+
+	/**
+	 * property name of getter method name, getXxx or isXxx.
+	 *
+	 * @return property name, null if not a getter.
+	 */
+	private static String propertyName(String methodName) {
+		final int prefix;
+		if (methodName.length() > 3 && methodName.startsWith("get")) {
+			prefix = 3;
+		} else if (methodName.length() > 2 && methodName.startsWith("is")) {
+			prefix = 2;
+		} else {
+			return null;
+		}
+
+		return Character.toLowerCase(methodName.charAt(prefix)) + methodName.substring(prefix + 1);
+	}
+
+	String typeName() {
+		return typeName;
+	}
+
+	/**
+	 * property names, index matches with {@link #values(Object)}.
+	 */
+	String[] names() {
+		return names;
+	}
+
+	/**
+	 * read all property values of obj.
+	 *
+	 * @return values, same order with {@link #names()}
+	 */
+	Object[] values(Object obj) throws IOException {
+		if (error != null) {
+			throw error;
+		}
+
+		final Object[] values = new Object[getters.length];
+		for (int i = 0; i < getters.length; ++i) {
+			try {
+				values[i] = (Object) getters[i].invokeExact(obj);
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IOException("cannot write pojo: invoke error on " + typeName + "." + names[i], e);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * create a new instance and set properties from the object structure of reader.
+	 */
+	Object read(TBONReader reader) throws IOException {
+		if (readError != null) {
+			throw readError;
+		}
+
+		final TBONParser parser = reader.parser();
+		if (!parser.next() || parser.currentToken() != TBONToken.Object) {
+			throw new IOException("TBONReader: custom type " + typeName + " should be an object");
+		}
+
+		final Object obj;
+		try {
+			obj = (Object) constructor.invokeExact();
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IOException("TBONReader: cannot read custom type " + typeName, e);
+		}
+		reader.register(parser.getReferenceId(), obj);
+
+		while (parser.next()) {
+			if (parser.currentToken() == TBONToken.EndOfStructure) {
+				break;
+			}
+
+			final String key = reader.readKey();
+			final Setter setter = setters.get(key);
+			if (setter == null) {
+				// cannot set, continue to next entry
+				parser.skipValue();
+				continue;
+			}
+
+			final Object value = reader.nextValue();
+			if (value == null) {
+				continue;
+			}
+
+			try {
+				setter.handle.invokeExact(obj, TBONReader.convertOctet(value, setter.type));
+			} catch (IOException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IOException("TBONReader: cannot read custom type " + typeName + ", property " + key, e);
+			}
+		}
+
+		return obj;
+	}
+}
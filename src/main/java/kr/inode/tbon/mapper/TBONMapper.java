@@ -1,25 +1,181 @@
 package kr.inode.tbon.mapper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import kr.inode.tbon.TBONFactory;
+import kr.inode.tbon.TBONGenerator;
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
 import kr.inode.tbon.steak.SteakFactory;
+import kr.inode.tbon.steak.SteakGenerator;
+import kr.inode.tbon.steak.SteakNode;
+import kr.inode.tbon.steak.SteakParser;
 
+/**
+ * maps values to TBON and back.
+ * <p>
+ * mapper is thread safe, one instance can be shared by threads. parsers and generators for channels and
+ * streams are pooled and reset for each call, so a call does not allocate buffers when a pooled one is
+ * available. a pooled instance is used by one call at a time. record readers and writers own their parser or
+ * generator, and are not thread safe.
+ * <p>
+ * type handlers can be registered while other threads are reading or writing. a call uses the handlers
+ * registered when the call is started.
+ */
 public class TBONMapper {
+	/**
+	 * default count of pooled parsers, and of pooled generators.
+	 */
+	public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+	/**
+	 * min count of elements decoded by a task of {@link #readArrayParallel(ByteBuffer, ForkJoinPool)}.
+	 */
+	private static final int MIN_PARALLEL_RANGE = 64;
+
 	private final TBONFactory factory;
-	private TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistryImpl();
+	private final TypeHandlerRegistryImpl typeHandlerRegistry = new TypeHandlerRegistryImpl();
+	private final ConcurrentMap<String, PojoDescriptor.Binding> pojoBindings = new ConcurrentHashMap<>();
+	private final InstancePool<TBONParser> parsers;
+	private final InstancePool<TBONGenerator> generators;
+	private volatile CyclePolicy cyclePolicy = CyclePolicy.NULL;
+	private volatile int maxDepth = TBONWriter.DEFAULT_MAX_DEPTH;
+	private volatile OctetPolicy octetPolicy = OctetPolicy.FILE;
+	private volatile int octetThreshold = TBONReader.DEFAULT_OCTET_THRESHOLD;
+	private final AtomicLong spilledBytes = new AtomicLong();
 
 	public TBONMapper() {
 		this(new SteakFactory());
 	}
 
 	public TBONMapper(TBONFactory factory) {
+		this(factory, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * @param poolSize
+	 *            max count of pooled parsers, and of pooled generators. 0 to disable pooling.
+	 */
+	public TBONMapper(TBONFactory factory, int poolSize) {
 		this.factory = factory;
+		this.parsers = new InstancePool<>(poolSize);
+		this.generators = new InstancePool<>(poolSize);
+	}
+
+	/**
+	 * pooled parser reset on in, or a new parser. a parser failed to reset is dropped.
+	 */
+	private TBONParser acquireParser(ReadableByteChannel in) throws IOException {
+		final TBONParser parser = parsers.poll();
+		if (parser == null) {
+			return factory.createParser(in);
+		}
+		parser.reset(in);
+		return parser;
+	}
+
+	private TBONGenerator acquireGenerator(WritableByteChannel out) throws IOException {
+		final TBONGenerator generator = generators.poll();
+		if (generator == null) {
+			return factory.createGenerator(out);
+		}
+		generator.reset(out);
+		return generator;
+	}
+
+	private TBONReader reader(TBONParser parser) {
+		final TypeHandlerRegistryImpl.Snapshot handlers = typeHandlerRegistry.snapshot();
+		return new TBONReader(parser, handlers.typeReaders, handlers.explicitReaderMap, pojoBindings, octetPolicy,
+				octetThreshold, spilledBytes);
+	}
+
+	private TBONWriter writer(TBONGenerator generator) {
+		final TypeHandlerRegistryImpl.Snapshot handlers = typeHandlerRegistry.snapshot();
+		return new TBONWriter(generator, handlers.typeWriters, handlers.explicitWriterMap, cyclePolicy, maxDepth);
+	}
+
+	public CyclePolicy getCyclePolicy() {
+		return cyclePolicy;
+	}
+
+	/**
+	 * handling of circular references on writing, {@link CyclePolicy#NULL} by default. a call uses the policy
+	 * set when the call is started.
+	 */
+	public void setCyclePolicy(CyclePolicy cyclePolicy) {
+		if (cyclePolicy == null) {
+			throw new NullPointerException("cyclePolicy");
+		}
+		this.cyclePolicy = cyclePolicy;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * max nesting depth of written objects, {@link TBONWriter#DEFAULT_MAX_DEPTH} by default.
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("maxDepth should be positive: " + maxDepth);
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	public OctetPolicy getOctetPolicy() {
+		return octetPolicy;
+	}
+
+	/**
+	 * reading of large octets, {@link OctetPolicy#FILE} by default.
+	 */
+	public void setOctetPolicy(OctetPolicy octetPolicy) {
+		if (octetPolicy == null) {
+			throw new NullPointerException("octetPolicy");
+		}
+		this.octetPolicy = octetPolicy;
+	}
+
+	public int getOctetThreshold() {
+		return octetThreshold;
+	}
+
+	/**
+	 * min length of large octets, {@link TBONReader#DEFAULT_OCTET_THRESHOLD} by default. octets of unknown length
+	 * are large.
+	 */
+	public void setOctetThreshold(int octetThreshold) {
+		if (octetThreshold < 0) {
+			throw new IllegalArgumentException("octetThreshold should not be negative: " + octetThreshold);
+		}
+		this.octetThreshold = octetThreshold;
+	}
+
+	/**
+	 * total length of octets spilled to files by this mapper.
+	 */
+	public long getSpilledBytes() {
+		return spilledBytes.get();
 	}
 
 	public TypeHandlerRegistry typeHandlerRegistry() {
@@ -31,20 +187,225 @@ public class TBONMapper {
 	}
 
 	public <T> T readFrom(ReadableByteChannel in) throws IOException {
-		try (final TBONReader reader = new TBONReader(factory.createParser(in), typeHandlerRegistry.typeReaders(),
-				typeHandlerRegistry.explicitTypeReaderMap())) {
+		final TBONParser parser = acquireParser(in);
+		try (final TBONReader reader = reader(parser)) {
+			return reader.nextValue();
+		} finally {
+			parsers.offer(parser);
+		}
+	}
+
+	/**
+	 * read a value from remaining bytes of buffer, e.g. a mapped file. position of in is not changed.
+	 */
+	public <T> T readFrom(ByteBuffer in) throws IOException {
+		try (final TBONReader reader = reader(factory.createParser(in))) {
 			return reader.nextValue();
 		}
 	}
 
+	/**
+	 * read whole value of a lazy node, including custom types.
+	 */
+	public <T> T readFrom(SteakNode node) throws IOException {
+		try (final TBONReader reader = reader(node.parser())) {
+			return reader.nextValue();
+		}
+	}
+
+	/**
+	 * read elements of top level array in parallel, for an array of many independent records. boundaries of
+	 * elements are scanned by skipping them on the calling thread, then ranges of elements are decoded by tasks of
+	 * pool. input written with references, schemas or compression is not supported, see {@link SteakNode}.
+	 * 
+	 * @param in
+	 *            whole document, e.g. a mapped file. position of in is not changed.
+	 * @return elements in order
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> readArrayParallel(ByteBuffer in, ForkJoinPool pool) throws IOException {
+		final SteakNode root = new SteakNode(in);
+		if (root.token() != TBONToken.Array) {
+			throw new IOException("TBONReader: top level is not an array, but " + root.token());
+		}
+
+		final int size = root.size();
+		final Object[] values = new Object[size];
+		final int range = parallelRange(size, pool);
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int start = 0; start < size; start += range) {
+			final SteakParser parser = root.get(start).parser();
+			final int from = start;
+			final int to = Math.min(size, start + range);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					try (final TBONReader reader = reader(parser)) {
+						for (int i = from; i < to; ++i) {
+							values[i] = reader.nextValue();
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		invokeAll(pool, tasks);
+		return (List<T>) new ArrayList<>(Arrays.asList(values));
+	}
+
+	/**
+	 * count of elements of a parallel task, a few ranges per thread to balance ranges of different sizes.
+	 */
+	private static int parallelRange(int size, ForkJoinPool pool) {
+		return Math.max(MIN_PARALLEL_RANGE, size / (pool.getParallelism() * 4) + 1);
+	}
+
+	/**
+	 * run tasks on pool and wait all of them.
+	 * 
+	 * @return results in order of tasks
+	 */
+	private static <V> List<V> invokeAll(ForkJoinPool pool, List<Callable<V>> tasks) throws IOException {
+		final List<V> results = new ArrayList<>(tasks.size());
+		for (final Future<V> result : pool.invokeAll(tasks)) {
+			try {
+				results.add(result.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("TBONMapper: interrupted");
+			} catch (ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException("TBONMapper: parallel task failed", cause);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * read only values on paths of projection, other values are skipped.
+	 * 
+	 * @return projected value, null if nothing matched.
+	 */
+	public <T> T readFrom(InputStream in, TBONProjection projection) throws IOException {
+		return readFrom(Channels.newChannel(in), projection);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T readFrom(ReadableByteChannel in, TBONProjection projection) throws IOException {
+		final TBONParser parser = acquireParser(in);
+		try (final TBONReader reader = reader(parser)) {
+			return (T) projection.read(reader);
+		} finally {
+			parsers.offer(parser);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T readFrom(ByteBuffer in, TBONProjection projection) throws IOException {
+		try (final TBONReader reader = reader(factory.createParser(in))) {
+			return (T) projection.read(reader);
+		}
+	}
+
+	/**
+	 * read a record stream, values are read until end of input.
+	 */
+	public <T> TBONRecordReader<T> readRecords(InputStream in) throws IOException {
+		return readRecords(Channels.newChannel(in));
+	}
+
+	public <T> TBONRecordReader<T> readRecords(ReadableByteChannel in) throws IOException {
+		return new TBONRecordReader<>(reader(factory.createParser(in)));
+	}
+
+	public <T> TBONRecordReader<T> readRecords(ByteBuffer in) throws IOException {
+		return new TBONRecordReader<>(reader(factory.createParser(in)));
+	}
+
 	public void writeTo(OutputStream out, Object obj) throws IOException {
 		writeTo(Channels.newChannel(out), obj);
 	}
 
 	public void writeTo(WritableByteChannel out, Object obj) throws IOException {
-		try (final TBONWriter writer = new TBONWriter(factory.createGenerator(out), typeHandlerRegistry.typeWriters(),
-				typeHandlerRegistry.explicitTypeWriterMap())) {
+		final TBONGenerator generator = acquireGenerator(out);
+		try (final TBONWriter writer = writer(generator)) {
 			writer.writeObject(obj);
+		} finally {
+			generators.offer(generator);
+		}
+	}
+
+	/**
+	 * bytes written to a stream, as a buffer without copy.
+	 */
+	private static final class FragmentOutput extends ByteArrayOutputStream {
+		ByteBuffer buffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	/**
+	 * write values as an array, ranges of values are encoded in parallel by tasks of pool. encoded ranges are kept
+	 * on heap, and written in order after the start of the array. factory should create a {@link SteakGenerator}
+	 * without index, references or schemas, see {@link SteakGenerator#writeFragment(ByteBuffer...)}.
+	 */
+	public void writeArrayParallel(OutputStream out, Collection<?> values, ForkJoinPool pool) throws IOException {
+		writeArrayParallel(Channels.newChannel(out), values, pool);
+	}
+
+	public void writeArrayParallel(WritableByteChannel out, Collection<?> values, ForkJoinPool pool)
+			throws IOException {
+		final Object[] array = values.toArray();
+		final int range = parallelRange(array.length, pool);
+		final List<Callable<ByteBuffer>> tasks = new ArrayList<>();
+		for (int start = 0; start < array.length; start += range) {
+			final int from = start;
+			final int to = Math.min(array.length, start + range);
+			tasks.add(new Callable<ByteBuffer>() {
+				@Override
+				public ByteBuffer call() throws IOException {
+					final FragmentOutput fragment = new FragmentOutput();
+					try (final TBONWriter writer = writer(SteakGenerator.fragment(Channels.newChannel(fragment)))) {
+						for (int i = from; i < to; ++i) {
+							writer.writeObject(array[i]);
+						}
+					}
+					return fragment.buffer();
+				}
+			});
+		}
+
+		final TBONGenerator generator = acquireGenerator(out);
+		try {
+			if (!(generator instanceof SteakGenerator)) {
+				throw new IOException("TBONWriter: parallel write needs SteakGenerator, but " + generator.getClass());
+			}
+			final List<ByteBuffer> fragments = invokeAll(pool, tasks);
+			generator.writeStartArray(array.length);
+			((SteakGenerator) generator).writeFragment(fragments.toArray(new ByteBuffer[fragments.size()]));
+			generator.writeEndArray();
+			generator.close();
+		} finally {
+			generators.offer(generator);
 		}
 	}
+
+	/**
+	 * start a record stream, records are appended by {@link TBONRecordWriter#append(Object)}.
+	 */
+	public TBONRecordWriter writeRecords(OutputStream out) throws IOException {
+		return writeRecords(Channels.newChannel(out));
+	}
+
+	public TBONRecordWriter writeRecords(WritableByteChannel out) throws IOException {
+		return new TBONRecordWriter(writer(factory.createGenerator(out)));
+	}
 }
@@ -0,0 +1,232 @@
+package kr.inode.tbon.mapper;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+
+/**
+ * set of paths to read from a value, e.g. "order.items[*].sku". other values are skipped without decoding.
+ * <p>
+ * a path is keys of objects separated by '.', and indexes of arrays in brackets. '*' matches any key or index.
+ * result keeps structure of the source, objects and arrays have only matched children, and are left out if no
+ * children are matched. a matched value is read entirely.
+ */
+public final class TBONProjection {
+	/**
+	 * a step of paths, children by key or index.
+	 */
+	private static final class Node {
+		private boolean leaf;
+		private Map<String, Node> keys;
+		private Node anyKey;
+		private Map<Integer, Node> indexes;
+		private Node anyIndex;
+
+		Node key(String key) {
+			if ("*".equals(key)) {
+				if (anyKey == null) {
+					anyKey = new Node();
+				}
+				return anyKey;
+			}
+			if (keys == null) {
+				keys = new HashMap<>();
+			}
+			Node node = keys.get(key);
+			if (node == null) {
+				node = new Node();
+				keys.put(key, node);
+			}
+			return node;
+		}
+
+		Node index(String index) {
+			if ("*".equals(index)) {
+				if (anyIndex == null) {
+					anyIndex = new Node();
+				}
+				return anyIndex;
+			}
+			final Integer i;
+			try {
+				i = Integer.valueOf(index);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("TBONProjection: invalid index " + index, e);
+			}
+			if (indexes == null) {
+				indexes = new HashMap<>();
+			}
+			Node node = indexes.get(i);
+			if (node == null) {
+				node = new Node();
+				indexes.put(i, node);
+			}
+			return node;
+		}
+
+		Node child(String key) {
+			Node node = keys == null ? null : keys.get(key);
+			return node == null ? anyKey : node;
+		}
+
+		Node child(int index) {
+			Node node = indexes == null ? null : indexes.get(index);
+			return node == null ? anyIndex : node;
+		}
+	}
+
+	/**
+	 * marks value is not matched with paths.
+	 */
+	private static final Object NOT_MATCHED = new Object();
+
+	private final Node root = new Node();
+
+	private TBONProjection() {
+	}
+
+	public static TBONProjection of(String... paths) {
+		final TBONProjection projection = new TBONProjection();
+		for (final String path : paths) {
+			projection.add(path);
+		}
+		return projection;
+	}
+
+	private void add(String path) {
+		Node node = root;
+		final int length = path.length();
+		int i = 0;
+		while (i < length) {
+			final char c = path.charAt(i);
+			if (c == '[') {
+				final int end = path.indexOf(']', i);
+				if (end < 0) {
+					throw new IllegalArgumentException("TBONProjection: ']' is missing on " + path);
+				}
+				node = node.index(path.substring(i + 1, end));
+				i = end + 1;
+			} else {
+				if (c == '.') {
+					if (node == root) {
+						throw new IllegalArgumentException("TBONProjection: empty key on " + path);
+					}
+					++i;
+				}
+				int end = i;
+				while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+					++end;
+				}
+				if (end == i) {
+					throw new IllegalArgumentException("TBONProjection: empty key on " + path);
+				}
+				node = node.key(path.substring(i, end));
+				i = end;
+			}
+		}
+		if (node == root) {
+			throw new IllegalArgumentException("TBONProjection: empty path");
+		}
+		node.leaf = true;
+	}
+
+	/**
+	 * read next value of reader with projection.
+	 * 
+	 * @return projected value, null if nothing matched.
+	 */
+	Object read(TBONReader reader) throws IOException {
+		if (!reader.parser().next()) {
+			throw new IOException("TBONReader: no more value");
+		}
+		final Object value = read(reader, root);
+		return value == NOT_MATCHED ? null : value;
+	}
+
+	/**
+	 * read current value of reader with node.
+	 */
+	private Object read(TBONReader reader, Node node) throws IOException {
+		if (node.leaf) {
+			return reader.currentValue();
+		}
+
+		final TBONParser parser = reader.parser();
+		switch (parser.currentToken()) {
+		case CustomType:
+			// match on typed value as a plain structure
+			if (!parser.next()) {
+				throw new IOException("TBONReader: no more value");
+			}
+			return read(reader, node);
+		case Object: {
+			final Map<String, Object> map = new LinkedHashMap<>();
+			while (parser.next()) {
+				if (parser.currentToken() == TBONToken.EndOfStructure) {
+					break;
+				}
+				final String key = reader.readKey();
+				final Node child = node.child(key);
+				if (child == null) {
+					parser.skipValue();
+					continue;
+				}
+				if (!parser.next()) {
+					throw new IOException("TBONReader: no more value");
+				}
+				final Object value = read(reader, child);
+				if (value != NOT_MATCHED) {
+					map.put(key, value);
+				}
+			}
+			return map.isEmpty() ? NOT_MATCHED : map;
+		}
+		case Array: {
+			final List<Object> list = new ArrayList<>();
+			for (int i = 0; parser.next(); ++i) {
+				if (parser.currentToken() == TBONToken.EndOfStructure) {
+					break;
+				}
+				final Node child = node.child(i);
+				if (child == null) {
+					parser.skipChildren();
+					continue;
+				}
+				final Object value = read(reader, child);
+				if (value != NOT_MATCHED) {
+					list.add(value);
+				}
+			}
+			return list.isEmpty() ? NOT_MATCHED : list;
+		}
+		case PrimitiveArrayOfBoolean:
+		case PrimitiveArrayOfShort:
+		case PrimitiveArrayOfInt:
+		case PrimitiveArrayOfLong:
+		case PrimitiveArrayOfFloat:
+		case PrimitiveArrayOfDouble:
+		case PrimitiveArrayOfChar: {
+			final Object array = reader.currentValue();
+			final List<Object> list = new ArrayList<>();
+			for (int i = 0, length = Array.getLength(array); i < length; ++i) {
+				final Node child = node.child(i);
+				if (child != null && child.leaf) {
+					list.add(Array.get(array, i));
+				}
+			}
+			return list.isEmpty() ? NOT_MATCHED : list;
+		}
+		default:
+			// path goes into a scalar value
+			parser.skipChildren();
+			return NOT_MATCHED;
+		}
+	}
+}
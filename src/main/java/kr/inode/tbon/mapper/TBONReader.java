@@ -6,23 +6,31 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import kr.inode.tbon.TBONParser;
 import kr.inode.tbon.TBONToken;
 
 public class TBONReader implements AutoCloseable {
+	/**
+	 * default length of large octet.
+	 */
+	public static final int DEFAULT_OCTET_THRESHOLD = 32 * 1024;
+
 	private static interface ReaderFunc {
 		Object read(TBONReader reader) throws IOException;
 	}
@@ -36,6 +44,12 @@ public class TBONReader implements AutoCloseable {
 				throw new IOException("TBONReader: EOS");
 			}
 		});
+		READER_FUNCS.put(TBONToken.NeedMoreInput, new ReaderFunc() {
+			@Override
+			public Object read(TBONReader reader) throws IOException {
+				throw new IOException("TBONReader: need more input on non-blocking parser");
+			}
+		});
 		READER_FUNCS.put(TBONToken.Null, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
@@ -135,18 +149,36 @@ public class TBONReader implements AutoCloseable {
 		READER_FUNCS.put(TBONToken.Octet, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final int len = reader.parser.getElementCount();
-				if (len != -1 && len < 32 * 1024) {
-					return reader.parser.readOctet();
-				} else {
-					final File tempFile = File.createTempFile("tbon", ".octet");
-					tempFile.deleteOnExit();
+				final TBONParser parser = reader.parser;
+				final int len = parser.getElementCount();
+				if (len != -1 && len < reader.octetThreshold) {
+					return parser.readOctet();
+				}
 
-					try (final FileOutputStream out = new FileOutputStream(tempFile)) {
-						reader.parser.readOctet(out);
+				switch (reader.octetPolicy) {
+				case BUFFER:
+					return parser.readOctetBuffer();
+				case MAPPED:
+					try (final FileChannel channel = FileChannel.open(Files.createTempFile("tbon", ".octet"),
+							StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+						parser.readOctet(Channels.newOutputStream(channel));
+						final long size = channel.size();
+						reader.spilled(size);
+						if (size > Integer.MAX_VALUE) {
+							throw new IOException("TBONReader: octet too large to map, " + size + " bytes");
+						}
+						// mapping is valid after close of channel, which deletes the file
+						return channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
 					}
-
-					return tempFile;
+				case FILE:
+					final File file = Files.createTempFile("tbon", ".octet").toFile();
+					try (final FileOutputStream out = new FileOutputStream(file)) {
+						parser.readOctet(out);
+					}
+					reader.spilled(file.length());
+					return file;
+				default:
+					return parser.readOctet();
 				}
 			}
 		});
@@ -159,99 +191,43 @@ public class TBONReader implements AutoCloseable {
 		READER_FUNCS.put(TBONToken.PrimitiveArrayOfBoolean, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final TBONParser parser = reader.parser;
-				final int len = parser.getElementCount();
-				final boolean[] arr = new boolean[len];
-				parser.next();
-				for (int i = 0; i < len; ++i) {
-					arr[i] = parser.getBoolean();
-					parser.next();
-				}
-				return arr;
+				return reader.parser.readBooleanArray();
 			}
 		});
 		READER_FUNCS.put(TBONToken.PrimitiveArrayOfShort, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final TBONParser parser = reader.parser;
-				final int len = parser.getElementCount();
-				final short[] arr = new short[len];
-				parser.next();
-				for (int i = 0; i < len; ++i) {
-					arr[i] = parser.getShort();
-					parser.next();
-				}
-				return arr;
+				return reader.parser.readShortArray();
 			}
 		});
 		READER_FUNCS.put(TBONToken.PrimitiveArrayOfInt, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final TBONParser parser = reader.parser;
-				final int len = parser.getElementCount();
-				final int[] arr = new int[len];
-				parser.next();
-				for (int i = 0; i < len; ++i) {
-					arr[i] = parser.getInt();
-					parser.next();
-				}
-				return arr;
+				return reader.parser.readIntArray();
 			}
 		});
 		READER_FUNCS.put(TBONToken.PrimitiveArrayOfLong, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final TBONParser parser = reader.parser;
-				final int len = parser.getElementCount();
-				final long[] arr = new long[len];
-				parser.next();
-				for (int i = 0; i < len; ++i) {
-					arr[i] = parser.getLong();
-					parser.next();
-				}
-				return arr;
+				return reader.parser.readLongArray();
 			}
 		});
 		READER_FUNCS.put(TBONToken.PrimitiveArrayOfFloat, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final TBONParser parser = reader.parser;
-				final int len = parser.getElementCount();
-				final float[] arr = new float[len];
-				parser.next();
-				for (int i = 0; i < len; ++i) {
-					arr[i] = parser.getFloat();
-					parser.next();
-				}
-				return arr;
+				return reader.parser.readFloatArray();
 			}
 		});
 		READER_FUNCS.put(TBONToken.PrimitiveArrayOfDouble, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final TBONParser parser = reader.parser;
-				final int len = parser.getElementCount();
-				final double[] arr = new double[len];
-				parser.next();
-				for (int i = 0; i < len; ++i) {
-					arr[i] = parser.getDouble();
-					parser.next();
-				}
-				return arr;
+				return reader.parser.readDoubleArray();
 			}
 		});
 		READER_FUNCS.put(TBONToken.PrimitiveArrayOfChar, new ReaderFunc() {
 			@Override
 			public Object read(TBONReader reader) throws IOException {
-				final TBONParser parser = reader.parser;
-				final int len = parser.getElementCount();
-				final char[] arr = new char[len];
-				parser.next();
-				for (int i = 0; i < len; ++i) {
-					arr[i] = parser.getChar();
-					parser.next();
-				}
-				return arr;
+				return reader.parser.readCharArray();
 			}
 		});
 		READER_FUNCS.put(TBONToken.Array, new ReaderFunc() {
@@ -260,6 +236,7 @@ public class TBONReader implements AutoCloseable {
 				final TBONParser parser = reader.parser;
 				final int len = parser.getElementCount();
 				final List<Object> list = new ArrayList<>(len == -1 ? 16 : len);
+				reader.register(parser.getReferenceId(), list);
 				while (parser.next()) {
 					if (parser.currentToken() == TBONToken.EndOfStructure) {
 						break;
@@ -276,12 +253,13 @@ public class TBONReader implements AutoCloseable {
 				final TBONParser parser = reader.parser;
 				final int len = parser.getElementCount();
 				final Map<String, Object> map = new LinkedHashMap<>(len == -1 ? 16 : len * 2);
+				reader.register(parser.getReferenceId(), map);
 				while (parser.next()) {
 					if (parser.currentToken() == TBONToken.EndOfStructure) {
 						break;
 					}
 
-					map.put((String) reader.currentValue(), reader.nextValue());
+					map.put(reader.readKey(), reader.nextValue());
 				}
 				return map;
 			}
@@ -307,54 +285,18 @@ public class TBONReader implements AutoCloseable {
 				}
 
 				// POJO handling
-				try {
-					final Class<?> cls = Class.forName(customTypeName, true,
-							Thread.currentThread().getContextClassLoader());
-					final Object obj = cls.getConstructor().newInstance();
-					final Map<String, Object> properties = reader.nextValue();
-					for (final Method method : cls.getMethods()) {
-						if (Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length != 1) {
-							continue;
-						}
-
-						final String methodName = method.getName();
-						if (methodName.length() > 3 && methodName.startsWith("set")) {
-							final char[] name = methodName.toCharArray();
-							name[3] = Character.toLowerCase(name[3]);
-							final String fieldName = new String(name, 3, name.length - 3);
-							final Object value = properties.get(fieldName);
-							if (value != null) {
-								method.invoke(obj, convertOctet(value, method.getParameterTypes()[0]));
-								properties.remove(fieldName);
-							}
-						}
-					}
-
-					for (final Entry<String, Object> entry : properties.entrySet()) {
-						final Object value = entry.getValue();
-						if (value == null) {
-							continue;
-						}
-
-						try {
-							final Field field = cls.getField(entry.getKey());
-							final int modifiers = field.getModifiers();
-							if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
-								continue;
-							}
-
-							field.set(obj, convertOctet(value, field.getType()));
-						} catch (NoSuchFieldException e) {
-							// continue to next entry, cannot set
-						}
-					}
-
-					return obj;
-				} catch (ClassNotFoundException | InstantiationException | IllegalAccessException
-						| IllegalArgumentException | InvocationTargetException | NoSuchMethodException
-						| SecurityException e) {
-					throw new IOException("TBONReader: cannot read custom type " + customTypeName, e);
+				return PojoDescriptor.forName(customTypeName, reader.pojoBindings).read(reader);
+			}
+		});
+		READER_FUNCS.put(TBONToken.Reference, new ReaderFunc() {
+			@Override
+			public Object read(TBONReader reader) throws IOException {
+				final int id = reader.parser.getReferenceId();
+				final Object value = reader.references == null ? null : reader.references.get(id);
+				if (value == null) {
+					throw new IOException("TBONReader: unresolved reference " + id);
 				}
+				return value;
 			}
 		});
 		READER_FUNCS.put(TBONToken.EndOfStructure, new ReaderFunc() {
@@ -365,15 +307,28 @@ public class TBONReader implements AutoCloseable {
 		});
 	}
 
-	private static Object convertOctet(Object source, Class<?> target) throws IOException {
+	static Object convertOctet(Object source, Class<?> target) throws IOException {
 		if (target == byte[].class) {
 			if (source instanceof File) {
 				return Files.readAllBytes(((File) source).toPath());
+			} else if (source instanceof ByteBuffer) {
+				final ByteBuffer buffer = ((ByteBuffer) source).duplicate();
+				final byte[] b = new byte[buffer.remaining()];
+				buffer.get(b);
+				return b;
+			}
+		} else if (target == ByteBuffer.class) {
+			if (source instanceof byte[]) {
+				return ByteBuffer.wrap((byte[]) source);
+			} else if (source instanceof File) {
+				return ByteBuffer.wrap(Files.readAllBytes(((File) source).toPath()));
 			}
 		} else if (InputStream.class.isAssignableFrom(target)) {
-			// source should byte[] or File
+			// source should byte[], ByteBuffer or File
 			if (source instanceof byte[]) {
 				return new ByteArrayInputStream((byte[]) source);
+			} else if (source instanceof ByteBuffer) {
+				return new BufferInputStream(((ByteBuffer) source).duplicate());
 			} else if (source instanceof File) {
 				return new FileInputStream((File) source);
 			}
@@ -382,9 +337,56 @@ public class TBONReader implements AutoCloseable {
 		return source;
 	}
 
+	/**
+	 * stream of remaining bytes of a buffer.
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
 	private final TBONParser parser;
 	private final Collection<TypeReader> typeReaders;
 	private final Map<String, TypeReader> explicitTypeReaderMap;
+	private final ConcurrentMap<String, PojoDescriptor.Binding> pojoBindings;
+	/**
+	 * arrays and objects of current top level value by id, null if nothing is registered.
+	 */
+	private Map<Integer, Object> references;
+	private int depth;
+
+	private final OctetPolicy octetPolicy;
+	private final int octetThreshold;
+	/**
+	 * count of spilled bytes shared by readers of a mapper, null if not counted.
+	 */
+	private final AtomicLong spilledBytes;
 
 	public TBONReader(TBONParser parser) {
 		this(parser, null, null);
@@ -392,9 +394,37 @@ public class TBONReader implements AutoCloseable {
 
 	public TBONReader(TBONParser parser, Collection<TypeReader> typeReaders,
 			Map<String, TypeReader> explicitTypeReaderMap) {
+		this(parser, typeReaders, explicitTypeReaderMap, new ConcurrentHashMap<String, PojoDescriptor.Binding>());
+	}
+
+	TBONReader(TBONParser parser, Collection<TypeReader> typeReaders, Map<String, TypeReader> explicitTypeReaderMap,
+			ConcurrentMap<String, PojoDescriptor.Binding> pojoBindings) {
+		this(parser, typeReaders, explicitTypeReaderMap, pojoBindings, OctetPolicy.FILE, DEFAULT_OCTET_THRESHOLD,
+				null);
+	}
+
+	/**
+	 * @param octetPolicy
+	 *            how an octet of octetThreshold length or more, or of unknown length, is read
+	 * @param spilledBytes
+	 *            added by length of octets spilled to files, may be null
+	 */
+	TBONReader(TBONParser parser, Collection<TypeReader> typeReaders, Map<String, TypeReader> explicitTypeReaderMap,
+			ConcurrentMap<String, PojoDescriptor.Binding> pojoBindings, OctetPolicy octetPolicy, int octetThreshold,
+			AtomicLong spilledBytes) {
 		this.parser = parser;
 		this.typeReaders = typeReaders;
 		this.explicitTypeReaderMap = explicitTypeReaderMap;
+		this.pojoBindings = pojoBindings;
+		this.octetPolicy = octetPolicy;
+		this.octetThreshold = octetThreshold;
+		this.spilledBytes = spilledBytes;
+	}
+
+	private void spilled(long size) {
+		if (spilledBytes != null) {
+			spilledBytes.addAndGet(size);
+		}
 	}
 
 	public TBONParser parser() {
@@ -411,7 +441,42 @@ public class TBONReader implements AutoCloseable {
 
 	@SuppressWarnings("unchecked")
 	public <T> T currentValue() throws IOException {
-		return (T) READER_FUNCS.get(parser.currentToken()).read(this);
+		++depth;
+		try {
+			return (T) READER_FUNCS.get(parser.currentToken()).read(this);
+		} finally {
+			if (--depth == 0 && references != null) {
+				// references do not cross top level values
+				references.clear();
+			}
+		}
+	}
+
+	/**
+	 * register value of current array or object, before reading children. later references to the id are
+	 * resolved to the value.
+	 * 
+	 * @param id
+	 *            by {@link TBONParser#getReferenceId()}, nothing is registered if -1.
+	 */
+	void register(int id, Object value) {
+		if (id < 0) {
+			return;
+		}
+		if (references == null) {
+			references = new HashMap<>();
+		}
+		references.put(id, value);
+	}
+
+	/**
+	 * read current token as an object key.
+	 */
+	String readKey() throws IOException {
+		if (parser.currentToken() != TBONToken.String) {
+			throw new IOException("TBONReader: object key should be a string, but " + parser.currentToken());
+		}
+		return parser.readKey();
 	}
 
 	@Override
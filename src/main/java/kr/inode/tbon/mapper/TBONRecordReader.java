@@ -0,0 +1,70 @@
+package kr.inode.tbon.mapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * reads top level values of a record stream, one header followed by values until end of input. one record is
+ * read ahead on {@link #hasNext()}, memory usage does not grow with record count.
+ * <p>
+ * I/O errors of iteration are thrown as {@link IllegalStateException} caused by the {@link IOException}.
+ */
+public class TBONRecordReader<T> implements Iterator<T>, Closeable {
+	private final TBONReader reader;
+	private boolean fetched;
+	private boolean ended;
+	private T record;
+
+	TBONRecordReader(TBONReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * read next record.
+	 * 
+	 * @return false if no more record
+	 */
+	private boolean fetch() throws IOException {
+		if (!fetched) {
+			if (reader.parser().next()) {
+				record = reader.currentValue();
+			} else {
+				ended = true;
+			}
+			fetched = true;
+		}
+		return !ended;
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			return fetch();
+		} catch (IOException e) {
+			throw new IllegalStateException("TBONRecordReader: cannot read record", e);
+		}
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		final T value = record;
+		record = null;
+		return value;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
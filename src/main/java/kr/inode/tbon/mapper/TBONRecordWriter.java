@@ -0,0 +1,34 @@
+package kr.inode.tbon.mapper;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * writes a record stream, one header followed by appended values. records are buffered until {@link #flush()}
+ * or {@link #close()}.
+ */
+public class TBONRecordWriter implements Closeable, Flushable {
+	private final TBONWriter writer;
+
+	TBONRecordWriter(TBONWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * append a record as a top level value.
+	 */
+	public void append(Object record) throws IOException {
+		writer.writeObject(record);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
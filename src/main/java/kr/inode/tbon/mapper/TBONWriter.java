@@ -3,21 +3,15 @@ package kr.inode.tbon.mapper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
-import java.util.ArrayDeque;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -25,6 +19,11 @@ import java.util.Map.Entry;
 import kr.inode.tbon.TBONGenerator;
 
 public class TBONWriter implements AutoCloseable {
+	/**
+	 * default max nesting depth of written objects.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 1024;
+
 	private static interface IntenalWriter {
 		void write(TBONWriter writer, Object obj) throws IOException;
 	}
@@ -96,12 +95,7 @@ public class TBONWriter implements AutoCloseable {
 		DEFAULT_WRITERS.put(boolean[].class, new IntenalWriter() {
 			@Override
 			public void write(TBONWriter writer, Object obj) throws IOException {
-				final int len = Array.getLength(obj);
-				writer.generator.writeStartPrimitiveArray(boolean.class, len);
-				for (int i = 0; i < len; ++i) {
-					writer.generator.write(Array.getBoolean(obj, i));
-				}
-				writer.generator.writeEndArray();
+				writer.generator.write((boolean[]) obj);
 			}
 		});
 		DEFAULT_WRITERS.put(byte[].class, new IntenalWriter() {
@@ -113,67 +107,37 @@ public class TBONWriter implements AutoCloseable {
 		DEFAULT_WRITERS.put(short[].class, new IntenalWriter() {
 			@Override
 			public void write(TBONWriter writer, Object obj) throws IOException {
-				final int len = Array.getLength(obj);
-				writer.generator.writeStartPrimitiveArray(short.class, len);
-				for (int i = 0; i < len; ++i) {
-					writer.generator.write(Array.getShort(obj, i));
-				}
-				writer.generator.writeEndArray();
+				writer.generator.write((short[]) obj);
 			}
 		});
 		DEFAULT_WRITERS.put(int[].class, new IntenalWriter() {
 			@Override
 			public void write(TBONWriter writer, Object obj) throws IOException {
-				final int len = Array.getLength(obj);
-				writer.generator.writeStartPrimitiveArray(int.class, len);
-				for (int i = 0; i < len; ++i) {
-					writer.generator.write(Array.getInt(obj, i));
-				}
-				writer.generator.writeEndArray();
+				writer.generator.write((int[]) obj);
 			}
 		});
 		DEFAULT_WRITERS.put(long[].class, new IntenalWriter() {
 			@Override
 			public void write(TBONWriter writer, Object obj) throws IOException {
-				final int len = Array.getLength(obj);
-				writer.generator.writeStartPrimitiveArray(long.class, len);
-				for (int i = 0; i < len; ++i) {
-					writer.generator.write(Array.getLong(obj, i));
-				}
-				writer.generator.writeEndArray();
+				writer.generator.write((long[]) obj);
 			}
 		});
 		DEFAULT_WRITERS.put(float[].class, new IntenalWriter() {
 			@Override
 			public void write(TBONWriter writer, Object obj) throws IOException {
-				final int len = Array.getLength(obj);
-				writer.generator.writeStartPrimitiveArray(float.class, len);
-				for (int i = 0; i < len; ++i) {
-					writer.generator.write(Array.getFloat(obj, i));
-				}
-				writer.generator.writeEndArray();
+				writer.generator.write((float[]) obj);
 			}
 		});
 		DEFAULT_WRITERS.put(double[].class, new IntenalWriter() {
 			@Override
 			public void write(TBONWriter writer, Object obj) throws IOException {
-				final int len = Array.getLength(obj);
-				writer.generator.writeStartPrimitiveArray(double.class, len);
-				for (int i = 0; i < len; ++i) {
-					writer.generator.write(Array.getDouble(obj, i));
-				}
-				writer.generator.writeEndArray();
+				writer.generator.write((double[]) obj);
 			}
 		});
 		DEFAULT_WRITERS.put(char[].class, new IntenalWriter() {
 			@Override
 			public void write(TBONWriter writer, Object obj) throws IOException {
-				final int len = Array.getLength(obj);
-				writer.generator.writeStartPrimitiveArray(char.class, len);
-				for (int i = 0; i < len; ++i) {
-					writer.generator.write(Array.getChar(obj, i));
-				}
-				writer.generator.writeEndArray();
+				writer.generator.write((char[]) obj);
 			}
 		});
 		DEFAULT_WRITERS.put(String.class, new IntenalWriter() {
@@ -248,11 +212,99 @@ public class TBONWriter implements AutoCloseable {
 		});
 	}
 
+	private static final IntenalWriter ARRAY_WRITER = new IntenalWriter() {
+		@Override
+		public void write(TBONWriter writer, Object obj) throws IOException {
+			final int len = Array.getLength(obj);
+			writer.generator.writeStartArray(len);
+			for (int i = 0; i < len; ++i) {
+				writer.writeObject(Array.get(obj, i));
+			}
+			writer.generator.writeEndArray();
+		}
+	};
+
+	private static final IntenalWriter POJO_WRITER = new IntenalWriter() {
+		@Override
+		public void write(TBONWriter writer, Object obj) throws IOException {
+			final PojoDescriptor descriptor = PojoDescriptor.of(obj.getClass());
+			final String[] names = descriptor.names();
+			final Object[] values = descriptor.values(obj);
+
+			int count = 0;
+			for (final Object value : values) {
+				if (value != null) {
+					++count;
+				}
+			}
+
+			// keys of non-null values
+			String[] keys = names;
+			if (count != names.length) {
+				keys = new String[count];
+				for (int i = 0, k = 0; i < values.length; ++i) {
+					if (values[i] != null) {
+						keys[k++] = names[i];
+					}
+				}
+			}
+
+			final TBONGenerator generator = writer.generator;
+			generator.writeCustomType(descriptor.typeName());
+			final boolean schema = generator.writeStartObject(keys);
+			for (int i = 0; i < values.length; ++i) {
+				if (values[i] != null) {
+					if (!schema) {
+						generator.write(names[i]);
+					}
+					writer.writeObject(values[i]);
+				}
+			}
+			generator.writeEndObject();
+		}
+	};
+
+	/**
+	 * built-in writer of each class, resolved once: default, interface, array, or POJO writer. does not depend
+	 * on registered type writers.
+	 */
+	private static final ClassValue<IntenalWriter> BUILTIN_WRITERS = new ClassValue<IntenalWriter>() {
+		@Override
+		protected IntenalWriter computeValue(Class<?> cls) {
+			final IntenalWriter typeWriter = DEFAULT_WRITERS.get(cls);
+			if (typeWriter != null) {
+				return typeWriter;
+			}
+
+			for (final Entry<Class<?>, IntenalWriter> entry : INTERFACE_WRITERS.entrySet()) {
+				if (entry.getKey().isAssignableFrom(cls)) {
+					final IntenalWriter interfaceWriter = entry.getValue();
+					return new IntenalWriter() {
+						@Override
+						public void write(TBONWriter writer, Object obj) throws IOException {
+							interfaceWriter.write(writer, obj);
+							writer.handleAutoCloseable(obj);
+						}
+					};
+				}
+			}
+
+			return cls.isArray() ? ARRAY_WRITER : POJO_WRITER;
+		}
+	};
+
 	private final TBONGenerator generator;
 	private final Collection<TypeWriter> typeWriters;
 	private final Map<Class<?>, TypeWriter> explicitTypeWriterMap;
-	// guard for circular dependency
-	private final Deque<Object> guard = new ArrayDeque<>();
+	private final CyclePolicy cyclePolicy;
+	private final int maxDepth;
+	// guard for circular dependency, objects being written. null if cycles are ignored.
+	private final Map<Object, Boolean> guard;
+	/**
+	 * reference ids of written objects in current top level value, null if references are not written.
+	 */
+	private final Map<Object, Integer> references;
+	private int depth;
 
 	public TBONWriter(final TBONGenerator generator) {
 		this(generator, null, null);
@@ -260,9 +312,24 @@ public class TBONWriter implements AutoCloseable {
 
 	public TBONWriter(final TBONGenerator generator, final Collection<TypeWriter> typeWriters,
 			final Map<Class<?>, TypeWriter> explicitTypeWriterMap) {
+		this(generator, typeWriters, explicitTypeWriterMap, CyclePolicy.NULL, DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * @param cyclePolicy
+	 *            handling of an object which is already being written
+	 * @param maxDepth
+	 *            max nesting depth of written objects, IOException is thrown on deeper value.
+	 */
+	public TBONWriter(final TBONGenerator generator, final Collection<TypeWriter> typeWriters,
+			final Map<Class<?>, TypeWriter> explicitTypeWriterMap, final CyclePolicy cyclePolicy, final int maxDepth) {
 		this.generator = generator;
 		this.typeWriters = typeWriters;
 		this.explicitTypeWriterMap = explicitTypeWriterMap;
+		this.cyclePolicy = cyclePolicy;
+		this.maxDepth = maxDepth;
+		this.guard = cyclePolicy == CyclePolicy.IGNORE ? null : new IdentityHashMap<Object, Boolean>();
+		this.references = cyclePolicy == CyclePolicy.REFERENCE ? new IdentityHashMap<Object, Integer>() : null;
 	}
 
 	public TBONGenerator generator() {
@@ -270,15 +337,33 @@ public class TBONWriter implements AutoCloseable {
 	}
 
 	public void writeObject(Object obj) throws IOException {
-		if (obj == null || guard.contains(obj)) {
+		if (obj == null) {
 			generator.writeNull();
 			return;
 		}
 
+		if (references != null) {
+			final Integer id = references.get(obj);
+			if (id != null) {
+				generator.writeReference(id);
+				return;
+			}
+		}
+
 		final Class<?> cls = obj.getClass();
-		guard.push(obj);
+		if (guard != null && guard.put(obj, Boolean.TRUE) != null) {
+			if (cyclePolicy == CyclePolicy.FAIL) {
+				throw new IOException("TBONWriter: circular reference of " + cls.getName());
+			}
+			generator.writeNull();
+			return;
+		}
 
 		try {
+			if (++depth > maxDepth) {
+				throw new IOException("TBONWriter: max depth " + maxDepth + " exceeded on " + cls.getName());
+			}
+
 			// explicit type writer
 			if (explicitTypeWriterMap != null) {
 				final TypeWriter typeWriter = explicitTypeWriterMap.get(cls);
@@ -301,104 +386,30 @@ public class TBONWriter implements AutoCloseable {
 				}
 			}
 
-			// default match writing
-			final IntenalWriter typeWriter = DEFAULT_WRITERS.get(cls);
-			if (typeWriter != null) {
-				typeWriter.write(this, obj);
+			if (references == null) {
+				BUILTIN_WRITERS.get(cls).write(this, obj);
 				return;
 			}
 
-			for (final Entry<Class<?>, IntenalWriter> entry : INTERFACE_WRITERS.entrySet()) {
-				if (entry.getKey().isAssignableFrom(cls)) {
-					entry.getValue().write(this, obj);
-					handleAutoCloseable(obj);
-					return;
-				}
+			// id of the structure of obj, registered before children for cyclic references
+			final int id = generator.nextReferenceId();
+			if (id < 0) {
+				throw new IOException("TBONWriter: generator does not write references");
 			}
-
-			// array handling
-			if (cls.isArray()) {
-				final int len = Array.getLength(obj);
-				generator.writeStartArray(len);
-				for (int i = 0; i < len; ++i) {
-					writeObject(Array.get(obj, i));
-				}
-				generator.writeEndArray();
-				return;
-			}
-
-			// POJO handling
-			final Map<String, Object> values = new HashMap<>();
-
-			Class<?> methodCls = cls;
-			do {
-				for (final Method method : cls.getDeclaredMethods()) {
-					final int modifiers = method.getModifiers();
-					if (!Modifier.isPublic(modifiers) || Modifier.isStatic(method.getModifiers())
-							|| method.getParameterTypes().length != 0) {
-						continue;
-					}
-
-					final String methodName = method.getName();
-					String key = null;
-					if (methodName.length() > 3 && methodName.startsWith("get")) {
-						final char[] name = methodName.toCharArray();
-						name[3] = Character.toLowerCase(name[3]);
-						key = new String(name, 3, name.length - 3);
-					} else if (methodName.length() > 2 && methodName.startsWith("is")) {
-						final char[] name = methodName.toCharArray();
-						name[2] = Character.toLowerCase(name[2]);
-						key = new String(name, 2, name.length - 2);
-					} else {
-						continue;
-					}
-
-					if (values.containsKey(key)) {
-						continue;
-					}
-
-					try {
-						values.put(key, method.invoke(obj));
-					} catch (IllegalArgumentException | IllegalAccessException | InvocationTargetException e) {
-						throw new IOException("cannot write pojo: invoke error on " + method, e);
-					}
-				}
-				methodCls = methodCls.getSuperclass();
-			} while (methodCls != Object.class);
-
-			for (final Field field : cls.getFields()) {
-				final int modifiers = field.getModifiers();
-				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
-					continue;
-				}
-				if (values.containsKey(field.getName())) {
-					continue;
-				}
-
-				try {
-					values.put(field.getName(), field.get(obj));
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					throw new IOException("cannot write pojo: field access error on " + field, e);
-				}
+			references.put(obj, id);
+			BUILTIN_WRITERS.get(cls).write(this, obj);
+			if (generator.nextReferenceId() == id) {
+				// not a structure
+				references.remove(obj);
 			}
-
-			final Iterator<Entry<String, Object>> it = values.entrySet().iterator();
-			while (it.hasNext()) {
-				final Entry<String, Object> entry = it.next();
-				if (entry.getValue() == null) {
-					it.remove();
-				}
+		} finally {
+			if (--depth == 0 && references != null) {
+				// references do not cross top level values
+				references.clear();
 			}
-
-			generator.writeCustomType(cls.getName());
-			generator.writeStartObject(values.size());
-			for (final Entry<String, Object> entry : values.entrySet()) {
-				generator.write(entry.getKey());
-				writeObject(entry.getValue());
+			if (guard != null) {
+				guard.remove(obj);
 			}
-			generator.writeEndObject();
-		} finally {
-			guard.pop();
 		}
 	}
 
@@ -412,6 +423,10 @@ public class TBONWriter implements AutoCloseable {
 		}
 	}
 
+	public void flush() throws IOException {
+		generator.flush();
+	}
+
 	@Override
 	public void close() throws IOException {
 		generator.close();
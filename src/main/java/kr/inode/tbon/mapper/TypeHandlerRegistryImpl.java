@@ -12,88 +12,127 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * registry publishes immutable snapshots. registration copies current snapshot, lookups read the snapshot
+ * without lock.
+ */
 class TypeHandlerRegistryImpl implements TypeHandlerRegistry {
-	private List<TypeReader> typeReaders = new ArrayList<>();
-	private List<TypeWriter> typeWriters = new ArrayList<>();
-	private Map<String, TypeReader> explicitReaderMap = new HashMap<>();
-	private Map<Class<?>, TypeWriter> explicitWriterMap = Collections.emptyMap();
-	private boolean updateExplicitWriterMap = false;
+	/**
+	 * immutable state of registry.
+	 */
+	static final class Snapshot {
+		final List<TypeReader> typeReaders;
+		final List<TypeWriter> typeWriters;
+		final Map<String, TypeReader> explicitReaderMap;
+		final Map<Class<?>, TypeWriter> explicitWriterMap;
+
+		Snapshot(List<TypeReader> typeReaders, List<TypeWriter> typeWriters,
+				Map<String, TypeReader> explicitReaderMap, Map<Class<?>, TypeWriter> explicitWriterMap) {
+			this.typeReaders = Collections.unmodifiableList(typeReaders);
+			this.typeWriters = Collections.unmodifiableList(typeWriters);
+			this.explicitReaderMap = Collections.unmodifiableMap(explicitReaderMap);
+			this.explicitWriterMap = Collections.unmodifiableMap(explicitWriterMap);
+		}
+	}
+
+	private volatile Snapshot snapshot = new Snapshot(new ArrayList<TypeReader>(), new ArrayList<TypeWriter>(),
+			new HashMap<String, TypeReader>(), new HashMap<Class<?>, TypeWriter>());
 
 	@Override
-	public void register(TypeHandler... typeHandlers) {
+	public synchronized void register(TypeHandler... typeHandlers) {
 		Objects.requireNonNull(typeHandlers, "typeHandlers should not null");
 
-		register((TypeReader[]) typeHandlers);
-		register((TypeWriter[]) typeHandlers);
+		snapshot = withWriters(withReaders(snapshot, typeHandlers), typeHandlers);
 	}
 
 	@Override
-	public void register(TypeReader... typeReaders) {
-		this.typeReaders.addAll(Arrays.asList(typeReaders));
+	public synchronized void register(TypeReader... typeReaders) {
+		snapshot = withReaders(snapshot, typeReaders);
+	}
+
+	@Override
+	public synchronized void register(TypeWriter... multiTypeWriters) {
+		snapshot = withWriters(snapshot, multiTypeWriters);
+	}
+
+	private static Snapshot withReaders(Snapshot current, TypeReader[] typeReaders) {
+		final List<TypeReader> readers = new ArrayList<>(current.typeReaders);
+		readers.addAll(Arrays.asList(typeReaders));
+		final Map<String, TypeReader> explicitReaderMap = new HashMap<>(current.explicitReaderMap);
 		for (TypeReader typeReader : typeReaders) {
 			if (typeReader instanceof ExplicitTypeReader) {
 				explicitReaderMap.put(((ExplicitTypeReader) typeReader).typeName(), typeReader);
 			}
 		}
+		return new Snapshot(readers, current.typeWriters, explicitReaderMap, current.explicitWriterMap);
 	}
 
-	@Override
-	public void register(TypeWriter... multiTypeWriters) {
-		this.typeWriters.addAll(Arrays.asList(multiTypeWriters));
-		updateExplicitWriterMap = true;
+	private static Snapshot withWriters(Snapshot current, TypeWriter[] typeWriters) {
+		final List<TypeWriter> writers = new ArrayList<>(current.typeWriters);
+		writers.addAll(Arrays.asList(typeWriters));
+		return new Snapshot(current.typeReaders, writers, current.explicitReaderMap, explicitWriterMap(writers));
+	}
+
+	/**
+	 * explicit writers by type class, subclass first.
+	 */
+	private static Map<Class<?>, TypeWriter> explicitWriterMap(List<TypeWriter> typeWriters) {
+		List<ExplicitTypeWriter> ordered = new LinkedList<>();
+
+		for (TypeWriter typeWriter : typeWriters) {
+			if (!(typeWriter instanceof ExplicitTypeWriter)) {
+				continue;
+			}
+
+			final ExplicitTypeWriter currentTypeWriter = (ExplicitTypeWriter) typeWriter;
+			final ListIterator<ExplicitTypeWriter> it = ordered.listIterator();
+
+			boolean added = false;
+			while (it.hasNext()) {
+				ExplicitTypeWriter possibleParent = it.next();
+				if (possibleParent.typeClass().isAssignableFrom(currentTypeWriter.typeClass())) {
+					it.previous();
+					it.add(currentTypeWriter);
+					added = true;
+					break;
+				}
+			}
+			if (!added) {
+				ordered.add(currentTypeWriter);
+			}
+		}
+
+		Map<Class<?>, TypeWriter> newMap = new LinkedHashMap<>(ordered.size());
+		for (ExplicitTypeWriter typeWriter : ordered) {
+			newMap.put(typeWriter.typeClass(), typeWriter);
+		}
+		return newMap;
+	}
+
+	/**
+	 * current snapshot, consistent state of all handlers.
+	 */
+	Snapshot snapshot() {
+		return snapshot;
 	}
 
 	@Override
 	public Collection<TypeReader> typeReaders() {
-		return typeReaders;
+		return snapshot.typeReaders;
 	}
 
 	@Override
 	public Collection<TypeWriter> typeWriters() {
-		return typeWriters;
+		return snapshot.typeWriters;
 	}
 
 	@Override
 	public Map<String, TypeReader> explicitTypeReaderMap() {
-		return explicitReaderMap;
+		return snapshot.explicitReaderMap;
 	}
 
 	@Override
 	public Map<Class<?>, TypeWriter> explicitTypeWriterMap() {
-		if (updateExplicitWriterMap) {
-			// create new writer map
-			List<ExplicitTypeWriter> ordered = new LinkedList<>();
-
-			for (TypeWriter typeWriter : typeWriters) {
-				if (!(typeWriter instanceof ExplicitTypeWriter)) {
-					continue;
-				}
-
-				final ExplicitTypeWriter currentTypeWriter = (ExplicitTypeWriter) typeWriter;
-				final ListIterator<ExplicitTypeWriter> it = ordered.listIterator();
-
-				boolean added = false;
-				while (it.hasNext()) {
-					ExplicitTypeWriter possibleParent = it.next();
-					if (possibleParent.typeClass().isAssignableFrom(currentTypeWriter.typeClass())) {
-						it.previous();
-						it.add(currentTypeWriter);
-						added = true;
-						break;
-					}
-				}
-				if (!added) {
-					ordered.add(currentTypeWriter);
-				}
-			}
-
-			Map<Class<?>, TypeWriter> newMap = new LinkedHashMap<>(ordered.size());
-			for (ExplicitTypeWriter typeWriter : ordered) {
-				newMap.put(typeWriter.typeClass(), typeWriter);
-			}
-			explicitWriterMap = newMap;
-		}
-
-		return explicitWriterMap;
+		return snapshot.explicitWriterMap;
 	}
 }
@@ -0,0 +1,148 @@
+package kr.inode.tbon.steak;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * reads uncompressed bytes of blocks written by {@link BlockWritableChannel}. input ends on the end of a block.
+ */
+final class BlockReadableChannel implements ReadableByteChannel {
+	private final SteakCompression compression;
+	private final SteakCompression.Codec codec;
+	private final byte[] raw = new byte[SteakCompression.BLOCK_SIZE];
+	private int rawPosition;
+	private int rawLength;
+	private final byte[] packed = new byte[SteakCompression.BLOCK_SIZE];
+
+	/**
+	 * input channel, null if all input bytes are on {@link #input}.
+	 */
+	private ReadableByteChannel in;
+	private ByteBuffer input;
+	private ByteBuffer inputBuffer;
+
+	BlockReadableChannel(SteakCompression compression) {
+		this.compression = compression;
+		this.codec = compression.codec();
+	}
+
+	SteakCompression compression() {
+		return compression;
+	}
+
+	/**
+	 * @param prefix
+	 *            bytes read from in before first block. if in is null, all bytes, not copied.
+	 */
+	void reset(ReadableByteChannel in, ByteBuffer prefix) {
+		this.in = in;
+		rawPosition = 0;
+		rawLength = 0;
+		if (in == null) {
+			input = prefix.slice();
+			return;
+		}
+
+		if (inputBuffer == null || inputBuffer.capacity() < prefix.remaining()) {
+			inputBuffer = ByteBuffer.allocate(Math.max(8192, prefix.remaining()));
+		}
+		input = inputBuffer;
+		input.clear();
+		input.put(prefix);
+		input.flip();
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (rawPosition == rawLength && !nextBlock()) {
+			return -1;
+		}
+		final int n = Math.min(dst.remaining(), rawLength - rawPosition);
+		dst.put(raw, rawPosition, n);
+		rawPosition += n;
+		return n;
+	}
+
+	private boolean nextBlock() throws IOException {
+		if (!ensureInput()) {
+			return false;
+		}
+		final int rawLen = readVInt();
+		final int len = readVInt();
+		if (rawLen <= 0 || rawLen > raw.length || len < 0 || len >= rawLen) {
+			throw new IOException("SteakParser: broken compressed block");
+		}
+		if (len == 0) {
+			readFully(raw, rawLen);
+		} else {
+			readFully(packed, len);
+			codec.decompress(packed, len, raw, rawLen);
+		}
+		rawPosition = 0;
+		rawLength = rawLen;
+		return true;
+	}
+
+	/**
+	 * @return false if input is ended
+	 */
+	private boolean ensureInput() throws IOException {
+		if (input.hasRemaining()) {
+			return true;
+		}
+		if (in == null) {
+			return false;
+		}
+
+		input.clear();
+		try {
+			int r;
+			do {
+				r = in.read(input);
+				if (r == -1) {
+					return false;
+				}
+			} while (r == 0);
+			return true;
+		} finally {
+			input.flip();
+		}
+	}
+
+	private int readVInt() throws IOException {
+		int i = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (!ensureInput()) {
+				throw new IOException("EOS on read");
+			}
+			final byte b = input.get();
+			i |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return i;
+			}
+		}
+		throw new IOException("SteakParser: broken compressed block");
+	}
+
+	private void readFully(byte[] dst, int len) throws IOException {
+		int offset = 0;
+		while (offset < len) {
+			if (!ensureInput()) {
+				throw new IOException("EOS on read");
+			}
+			final int n = Math.min(len - offset, input.remaining());
+			input.get(dst, offset, n);
+			offset += n;
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return in == null || in.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+}
@@ -0,0 +1,116 @@
+package kr.inode.tbon.steak;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * writes header, then compressed blocks of written bytes to output channel. a block is the length of uncompressed
+ * bytes and the length of compressed bytes as 7bit encoded ints, and the compressed bytes. 0 compressed length is
+ * a block stored without compression.
+ */
+final class BlockWritableChannel implements WritableByteChannel {
+	private final SteakCompression compression;
+	private final SteakCompression.Codec codec;
+	private final byte[] raw = new byte[SteakCompression.BLOCK_SIZE];
+	private int rawLength;
+	private final byte[] packed = new byte[SteakCompression.BLOCK_SIZE];
+	private final ByteBuffer frame = ByteBuffer.allocate(10);
+
+	private WritableByteChannel out;
+	/**
+	 * header not written yet, null if written.
+	 */
+	private byte[] header;
+
+	BlockWritableChannel(SteakCompression compression) {
+		this.compression = compression;
+		this.codec = compression.codec();
+	}
+
+	SteakCompression compression() {
+		return compression;
+	}
+
+	void reset(WritableByteChannel out) {
+		this.out = out;
+		header = null;
+		rawLength = 0;
+	}
+
+	/**
+	 * header to write before first block.
+	 */
+	void header(byte[] header) {
+		this.header = header;
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		final int n = src.remaining();
+		while (src.hasRemaining()) {
+			final int len = Math.min(src.remaining(), raw.length - rawLength);
+			src.get(raw, rawLength, len);
+			rawLength += len;
+			if (rawLength == raw.length) {
+				writeBlock();
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * write buffered bytes as a block, and header if not written.
+	 */
+	void flush() throws IOException {
+		if (header != null || rawLength > 0) {
+			writeBlock();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		if (header != null) {
+			writeFully(ByteBuffer.wrap(header));
+			header = null;
+		}
+		if (rawLength == 0) {
+			return;
+		}
+
+		final int len = codec.compress(raw, rawLength, packed);
+		frame.clear();
+		putVInt(rawLength);
+		putVInt(len < 0 ? 0 : len);
+		frame.flip();
+		writeFully(frame);
+		writeFully(len < 0 ? ByteBuffer.wrap(raw, 0, rawLength) : ByteBuffer.wrap(packed, 0, len));
+		rawLength = 0;
+	}
+
+	private void putVInt(int i) {
+		while (i > 0x7f) {
+			frame.put((byte) ((i & 0x7f) | 0x80));
+			i >>= 7;
+		}
+		frame.put((byte) i);
+	}
+
+	private void writeFully(ByteBuffer b) throws IOException {
+		while (b.hasRemaining()) {
+			out.write(b);
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return out.isOpen();
+	}
+
+	/**
+	 * flush only, output channel is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
@@ -0,0 +1,71 @@
+package kr.inode.tbon.steak;
+
+/**
+ * bounded cache of short strings keyed by UTF-8 bytes, for object keys and custom type names. repeated keys return
+ * same String instance without allocation.
+ * 
+ * direct mapped, a new key replaces older key on same slot. safe to share between parsers of different threads,
+ * entries are immutable.
+ */
+final class KeyCache {
+	/**
+	 * longer keys are not cached.
+	 */
+	static final int MAX_KEY_LENGTH = 64;
+
+	private static final class Entry {
+		final int hash;
+		final byte[] bytes;
+		final String value;
+
+		Entry(int hash, byte[] bytes, String value) {
+			this.hash = hash;
+			this.bytes = bytes;
+			this.value = value;
+		}
+	}
+
+	private final Entry[] entries;
+	private final int mask;
+
+	KeyCache(int size) {
+		int capacity = Integer.highestOneBit(Math.max(size, 1));
+		if (capacity < size) {
+			capacity <<= 1;
+		}
+		entries = new Entry[capacity];
+		mask = capacity - 1;
+	}
+
+	String intern(byte[] b, int offset, int len) {
+		int hash = len;
+		for (int i = offset, end = offset + len; i < end; ++i) {
+			hash = 31 * hash + b[i];
+		}
+		hash ^= hash >>> 16;
+
+		final int index = hash & mask;
+		final Entry entry = entries[index];
+		if (entry != null && entry.hash == hash && equals(entry.bytes, b, offset, len)) {
+			return entry.value;
+		}
+
+		final String value = SteakParser.decodeString(b, offset, len);
+		final byte[] bytes = new byte[len];
+		System.arraycopy(b, offset, bytes, 0, len);
+		entries[index] = new Entry(hash, bytes, value);
+		return value;
+	}
+
+	private static boolean equals(byte[] bytes, byte[] b, int offset, int len) {
+		if (bytes.length != len) {
+			return false;
+		}
+		for (int i = 0; i < len; ++i) {
+			if (bytes[i] != b[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
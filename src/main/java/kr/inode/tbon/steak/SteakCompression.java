@@ -0,0 +1,260 @@
+package kr.inode.tbon.steak;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * compression of bytes after header. bytes are split to blocks of {@link #BLOCK_SIZE} bytes at most, and each
+ * block is compressed independently, so generator and parser keep one block on memory.
+ *
+ * @see SteakFactory#SteakFactory(int, boolean, boolean, SteakCompression)
+ */
+public enum SteakCompression {
+	/**
+	 * deflate of {@link Deflater}, smaller output.
+	 */
+	DEFLATE {
+		@Override
+		Codec codec() {
+			return new DeflateCodec();
+		}
+	},
+	/**
+	 * LZ77 of 4 bytes matches in a block, faster than {@link #DEFLATE}.
+	 */
+	LZ {
+		@Override
+		Codec codec() {
+			return new LZCodec();
+		}
+	};
+
+	/**
+	 * max length of uncompressed bytes of a block.
+	 */
+	static final int BLOCK_SIZE = 65536;
+
+	/**
+	 * id on the byte after header.
+	 */
+	int id() {
+		return ordinal() + 1;
+	}
+
+	static SteakCompression of(int id) throws IOException {
+		final SteakCompression[] values = values();
+		if (id < 1 || id > values.length) {
+			throw new IOException("SteakParser: unsupported compression " + id);
+		}
+		return values[id - 1];
+	}
+
+	/**
+	 * new state of compression for a generator or a parser.
+	 */
+	abstract Codec codec();
+
+	/**
+	 * compressor and decompressor of blocks, not thread safe.
+	 */
+	abstract static class Codec {
+		/**
+		 * @return length of compressed bytes on dst, or -1 if compressed bytes are not shorter than src
+		 */
+		abstract int compress(byte[] src, int len, byte[] dst);
+
+		/**
+		 * decompress whole rawLen bytes to dst.
+		 */
+		abstract void decompress(byte[] src, int len, byte[] dst, int rawLen) throws IOException;
+	}
+
+	private static final class DeflateCodec extends Codec {
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		private final Inflater inflater = new Inflater(true);
+
+		@Override
+		int compress(byte[] src, int len, byte[] dst) {
+			deflater.reset();
+			deflater.setInput(src, 0, len);
+			deflater.finish();
+			int n = 0;
+			while (!deflater.finished() && n < len - 1) {
+				n += deflater.deflate(dst, n, len - 1 - n);
+			}
+			return deflater.finished() ? n : -1;
+		}
+
+		@Override
+		void decompress(byte[] src, int len, byte[] dst, int rawLen) throws IOException {
+			inflater.reset();
+			inflater.setInput(src, 0, len);
+			int n = 0;
+			try {
+				while (n < rawLen) {
+					final int r = inflater.inflate(dst, n, rawLen - n);
+					if (r == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+					n += r;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("SteakParser: broken compressed block", e);
+			}
+			if (n != rawLen) {
+				throw new IOException("SteakParser: broken compressed block");
+			}
+		}
+	}
+
+	/**
+	 * sequences of a token byte, literals, 2 bytes offset of a match and extra length of the match. upper 4 bits of
+	 * token are count of literals, lower 4 bits are length of the match minus 4. 15 is followed by extra bytes added
+	 * to the count, until a byte is not 255. last sequence has literals only.
+	 */
+	private static final class LZCodec extends Codec {
+		private static final int MIN_MATCH = 4;
+		private static final int HASH_BITS = 14;
+
+		/**
+		 * last position of 4 bytes by hash, -1 if not seen on current block.
+		 */
+		private final int[] table = new int[1 << HASH_BITS];
+
+		private static int readInt(byte[] b, int i) {
+			return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16 | b[i + 3] << 24;
+		}
+
+		private static int hash(int i) {
+			return (i * -1640531535) >>> (32 - HASH_BITS);
+		}
+
+		private static int writeLength(byte[] dst, int dp, int n) {
+			while (n >= 255) {
+				dst[dp++] = (byte) 255;
+				n -= 255;
+			}
+			dst[dp++] = (byte) n;
+			return dp;
+		}
+
+		@Override
+		int compress(byte[] src, int len, byte[] dst) {
+			final int[] table = this.table;
+			Arrays.fill(table, -1);
+			// compressed bytes should be shorter than src
+			final int limit = len - 1;
+			int sp = 0;
+			int dp = 0;
+			int anchor = 0;
+			while (sp + MIN_MATCH <= len) {
+				final int seq = readInt(src, sp);
+				final int h = hash(seq);
+				final int ref = table[h];
+				table[h] = sp;
+				if (ref < 0 || sp - ref > 0xffff || readInt(src, ref) != seq) {
+					// skip faster on incompressible bytes
+					sp += 1 + ((sp - anchor) >>> 6);
+					continue;
+				}
+
+				int match = MIN_MATCH;
+				while (sp + match < len && src[ref + match] == src[sp + match]) {
+					++match;
+				}
+
+				final int literals = sp - anchor;
+				if (dp + literals + literals / 255 + match / 255 + 5 > limit) {
+					return -1;
+				}
+				final int matchCode = match - MIN_MATCH;
+				dst[dp++] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchCode, 15));
+				if (literals >= 15) {
+					dp = writeLength(dst, dp, literals - 15);
+				}
+				System.arraycopy(src, anchor, dst, dp, literals);
+				dp += literals;
+				final int offset = sp - ref;
+				dst[dp++] = (byte) offset;
+				dst[dp++] = (byte) (offset >>> 8);
+				if (matchCode >= 15) {
+					dp = writeLength(dst, dp, matchCode - 15);
+				}
+
+				sp += match;
+				anchor = sp;
+			}
+
+			final int literals = len - anchor;
+			if (literals > 0) {
+				if (dp + literals + literals / 255 + 2 > limit) {
+					return -1;
+				}
+				dst[dp++] = (byte) (Math.min(literals, 15) << 4);
+				if (literals >= 15) {
+					dp = writeLength(dst, dp, literals - 15);
+				}
+				System.arraycopy(src, anchor, dst, dp, literals);
+				dp += literals;
+			}
+			return dp;
+		}
+
+		@Override
+		void decompress(byte[] src, int len, byte[] dst, int rawLen) throws IOException {
+			int sp = 0;
+			int dp = 0;
+			try {
+				while (dp < rawLen) {
+					final int token = src[sp++] & 0xff;
+					int literals = token >>> 4;
+					if (literals == 15) {
+						int b;
+						do {
+							b = src[sp++] & 0xff;
+							literals += b;
+						} while (b == 255);
+					}
+					if (sp + literals > len || dp + literals > rawLen) {
+						break;
+					}
+					System.arraycopy(src, sp, dst, dp, literals);
+					sp += literals;
+					dp += literals;
+					if (dp == rawLen) {
+						break;
+					}
+
+					final int offset = (src[sp] & 0xff) | (src[sp + 1] & 0xff) << 8;
+					sp += 2;
+					int match = token & 0x0f;
+					if (match == 15) {
+						int b;
+						do {
+							b = src[sp++] & 0xff;
+							match += b;
+						} while (b == 255);
+					}
+					match += MIN_MATCH;
+					int ref = dp - offset;
+					if (offset == 0 || ref < 0 || dp + match > rawLen) {
+						break;
+					}
+					// byte by byte, a match may overlap itself
+					final int end = dp + match;
+					while (dp < end) {
+						dst[dp++] = dst[ref++];
+					}
+				}
+			} catch (ArrayIndexOutOfBoundsException e) {
+				throw new IOException("SteakParser: broken compressed block", e);
+			}
+			if (dp != rawLen || sp != len) {
+				throw new IOException("SteakParser: broken compressed block");
+			}
+		}
+	}
+}
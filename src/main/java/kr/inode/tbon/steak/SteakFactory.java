@@ -3,6 +3,8 @@ package kr.inode.tbon.steak;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -14,6 +16,90 @@ import kr.inode.tbon.TBONParser;
 public class SteakFactory implements TBONFactory {
 	static final byte[] STEAK_HEADER = { (byte) 0xf0, (byte) 0x9f, (byte) 0xa5, (byte) 0xa9, 0x00 };
 
+	/**
+	 * flag on last byte of header, strings, arrays and objects can be written as references of type byte 0x2f.
+	 */
+	static final int HEADER_REFERENCES = 0x01;
+
+	/**
+	 * flag on last byte of header, keys of objects can be written once as a schema of type byte 0x2f.
+	 */
+	static final int HEADER_SCHEMAS = 0x02;
+
+	/**
+	 * flag on last byte of header, bytes after header are an id of {@link SteakCompression} and compressed blocks.
+	 */
+	static final int HEADER_COMPRESSED = 0x04;
+
+	/**
+	 * max count of schemas, later key sets are written as plain objects.
+	 */
+	static final int MAX_SCHEMAS = 4096;
+
+	/**
+	 * strings of encoded length from this to 62 bytes are numbered for references, as a reference takes 4 bytes
+	 * at most.
+	 */
+	static final int MIN_STRING_REFERENCE_LENGTH = 4;
+
+	/**
+	 * max count of numbered strings, later strings are not numbered.
+	 */
+	static final int MAX_STRING_REFERENCES = 1 << 16;
+
+	/**
+	 * default entry count of object key cache.
+	 */
+	public static final int DEFAULT_KEY_CACHE_SIZE = 512;
+
+	private final KeyCache keyCache;
+	private final boolean references;
+	private final boolean schemas;
+	private final SteakCompression compression;
+
+	public SteakFactory() {
+		this(DEFAULT_KEY_CACHE_SIZE);
+	}
+
+	/**
+	 * @param keyCacheSize
+	 *            entry count of object key cache shared by parsers of this factory. 0 to disable.
+	 */
+	public SteakFactory(int keyCacheSize) {
+		this(keyCacheSize, false);
+	}
+
+	/**
+	 * @param references
+	 *            true if generators write repeated strings as references, see
+	 *            {@link SteakGenerator#SteakGenerator(WritableByteChannel, boolean, boolean)}. parsers read both.
+	 */
+	public SteakFactory(int keyCacheSize, boolean references) {
+		this(keyCacheSize, references, false);
+	}
+
+	/**
+	 * @param schemas
+	 *            true if generators write keys of same key set once, see
+	 *            {@link SteakGenerator#SteakGenerator(WritableByteChannel, boolean, boolean, boolean)}.
+	 */
+	public SteakFactory(int keyCacheSize, boolean references, boolean schemas) {
+		this(keyCacheSize, references, schemas, null);
+	}
+
+	/**
+	 * @param compression
+	 *            compression of generators on a channel, null to write uncompressed, see
+	 *            {@link SteakGenerator#SteakGenerator(WritableByteChannel, boolean, boolean, boolean, SteakCompression)}.
+	 *            parsers read both, except non-blocking parsers.
+	 */
+	public SteakFactory(int keyCacheSize, boolean references, boolean schemas, SteakCompression compression) {
+		this.keyCache = keyCacheSize > 0 ? new KeyCache(keyCacheSize) : null;
+		this.references = references;
+		this.schemas = schemas;
+		this.compression = compression;
+	}
+
 	@Override
 	public TBONParser createParser(InputStream in) throws IOException {
 		return createParser(Channels.newChannel(in));
@@ -21,7 +107,19 @@ public class SteakFactory implements TBONFactory {
 
 	@Override
 	public TBONParser createParser(ReadableByteChannel in) throws IOException {
-		return new SteakParser(in);
+		return new SteakParser(in, keyCache);
+	}
+
+	@Override
+	public TBONParser createParser(ByteBuffer in) throws IOException {
+		return new SteakParser(in, keyCache);
+	}
+
+	/**
+	 * @see SteakParser#SteakParser()
+	 */
+	public SteakParser createNonBlockingParser() {
+		return new SteakParser(keyCache);
 	}
 
 	@Override
@@ -31,6 +129,15 @@ public class SteakFactory implements TBONFactory {
 
 	@Override
 	public TBONGenerator createGenerator(WritableByteChannel out) throws IOException {
+		return new SteakGenerator(out, false, references, schemas, compression);
+	}
+
+	/**
+	 * asynchronous generator does not compress.
+	 * 
+	 * @see SteakGenerator#SteakGenerator(AsynchronousByteChannel)
+	 */
+	public SteakGenerator createGenerator(AsynchronousByteChannel out) {
 		return new SteakGenerator(out);
 	}
 }
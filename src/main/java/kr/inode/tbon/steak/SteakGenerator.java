@@ -5,12 +5,29 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.AsynchronousByteChannel;
 import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import kr.inode.tbon.TBONGenerator;
 
@@ -20,17 +37,332 @@ public class SteakGenerator implements TBONGenerator {
 	 */
 	private static final int STREAM_LEN_LIMIT = 1024 * 1024;
 
-	private final WritableByteChannel out;
-	private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * min space on buffer to read a chunk of stream of unknown length.
+	 */
+	private static final int MIN_STREAM_CHUNK = 512;
+
+	/**
+	 * output channel, null if generator flushes to {@link #asyncOut}.
+	 */
+	private WritableByteChannel out;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	/**
+	 * buffer and payload of a gathering write.
+	 */
+	private final ByteBuffer[] gather = new ByteBuffer[2];
+
+	private final AsynchronousByteChannel asyncOut;
+	/**
+	 * filled buffers not written to asyncOut yet.
+	 */
+	private final Queue<ByteBuffer> pending;
+	/**
+	 * written buffers, returned by completion of asyncOut.
+	 */
+	private final Queue<ByteBuffer> recycled;
+
+	/**
+	 * element type of current primitive array, null if not in primitive array.
+	 */
+	private Class<?> arrayType;
+	private int arrayRemaining;
+
+	/**
+	 * bytes written to output, except bytes on buffer.
+	 */
+	private long written;
+	private int depth;
+
+	/**
+	 * offsets of children of top level structure, null if index is not written.
+	 */
+	private long[] indexOffsets;
+	private final boolean indexed;
+	private int indexSize;
+	/**
+	 * keys of top level object, null if top level is not an object.
+	 */
+	private List<String> indexKeys;
+	/**
+	 * count of keys and values marked on top level structure.
+	 */
+	private int indexSlot;
+	private long lastMark = -1L;
+	/**
+	 * true if top level value is written, an indexed output has one top level value.
+	 */
+	private boolean topEnded;
+	/**
+	 * true if next value is the value of custom type.
+	 */
+	private boolean typed;
+
+	/**
+	 * ids of numbered strings, null if references are not written.
+	 */
+	private final Map<String, Integer> strings;
+	/**
+	 * ids of key sets, null if schemas are not written.
+	 */
+	private final Map<List<String>, Integer> schemas;
+	/**
+	 * count of started arrays and objects.
+	 */
+	private int structures;
+
+	/**
+	 * compressing channel on output channel, null if bytes are not compressed.
+	 */
+	private final BlockWritableChannel block;
 
 	public SteakGenerator(final WritableByteChannel out) throws IOException {
-		this.out = out;
-		buffer.put(SteakFactory.STEAK_HEADER);
+		this(out, false);
+	}
+
+	/**
+	 * @param index
+	 *            true to write offset index of top level structure children on close, see {@link SteakIndex}. the
+	 *            index follows one top level value as two more values, so indexed output is not a record stream
+	 *            and a second top level value is rejected.
+	 */
+	public SteakGenerator(final WritableByteChannel out, boolean index) throws IOException {
+		this(out, index, false);
+	}
+
+	/**
+	 * @param references
+	 *            true to write a repeated string as a reference to the first one, and to allow
+	 *            {@link #writeReference(int)}. index can not be written with references, as a value on the index
+	 *            may refer to values before it.
+	 */
+	public SteakGenerator(final WritableByteChannel out, boolean index, boolean references) throws IOException {
+		this(out, index, references, false);
+	}
+
+	/**
+	 * @param schemas
+	 *            true to write keys of {@link #writeStartObject(String[])} once, later objects of same keys refer
+	 *            them by an id. index can not be written with schemas also.
+	 */
+	public SteakGenerator(final WritableByteChannel out, boolean index, boolean references, boolean schemas)
+			throws IOException {
+		this(out, index, references, schemas, null);
+	}
+
+	/**
+	 * @param compression
+	 *            compression of bytes after header, null to write uncompressed. bytes are compressed by blocks of
+	 *            64 KB, {@link #flush()} writes current block. index can not be written with compression, as
+	 *            offsets of compressed bytes are not seekable.
+	 */
+	public SteakGenerator(final WritableByteChannel out, boolean index, boolean references, boolean schemas,
+			SteakCompression compression) throws IOException {
+		if (index && (references || schemas)) {
+			throw new IllegalArgumentException("SteakGenerator: index can not be written with references");
+		}
+		if (index && compression != null) {
+			throw new IllegalArgumentException("SteakGenerator: index can not be written with compression");
+		}
+		if (compression != null) {
+			this.block = new BlockWritableChannel(compression);
+			block.reset(out);
+			this.out = block;
+		} else {
+			this.block = null;
+			this.out = out;
+		}
+		this.asyncOut = null;
+		this.pending = null;
+		this.recycled = null;
+		this.indexed = index;
+		if (index) {
+			indexOffsets = new long[16];
+		}
+		this.strings = references ? new HashMap<String, Integer>() : null;
+		this.schemas = schemas ? new HashMap<List<String>, Integer>() : null;
+		writeHeader();
+	}
+
+	/**
+	 * header of compressed bytes is written by {@link #block}, followed by id of compression.
+	 */
+	private void writeHeader() {
+		final int length = SteakFactory.STEAK_HEADER.length;
+		final byte[] header = Arrays.copyOf(SteakFactory.STEAK_HEADER, block != null ? length + 1 : length);
+		header[length - 1] = (byte) ((strings != null ? SteakFactory.HEADER_REFERENCES : 0)
+				| (schemas != null ? SteakFactory.HEADER_SCHEMAS : 0)
+				| (block != null ? SteakFactory.HEADER_COMPRESSED : 0));
+		if (block == null) {
+			buffer.put(header);
+			return;
+		}
+		header[length] = (byte) block.compression().id();
+		block.header(header);
+		written = header.length;
+	}
+
+	/**
+	 * generator of values to be written by {@link #writeFragment(ByteBuffer...)} of another generator, e.g.
+	 * elements of an array encoded in parallel. no header is written, {@link #reset(WritableByteChannel)} writes
+	 * one.
+	 */
+	public static SteakGenerator fragment(WritableByteChannel out) throws IOException {
+		final SteakGenerator generator = new SteakGenerator(out);
+		// header is on buffer yet
+		generator.buffer.clear();
+		return generator;
+	}
+
+	/**
+	 * only generator on a channel can be reset.
+	 */
+	@Override
+	public void reset(WritableByteChannel out) throws IOException {
+		if (this.out == null) {
+			throw new IOException("SteakGenerator: not a generator on a channel");
+		}
+
+		this.out = block != null ? block : out;
+		buffer.clear();
+		arrayType = null;
+		arrayRemaining = 0;
+		written = 0L;
+		depth = 0;
+		indexOffsets = indexed ? new long[16] : null;
+		indexSize = 0;
+		indexKeys = null;
+		indexSlot = 0;
+		lastMark = -1L;
+		topEnded = false;
+		typed = false;
+		if (strings != null) {
+			strings.clear();
+		}
+		if (schemas != null) {
+			schemas.clear();
+		}
+		structures = 0;
+
+		if (block != null) {
+			block.reset(out);
+		}
+		writeHeader();
+	}
+
+	/**
+	 * count of generated bytes, including header. bytes before compression if compressed.
+	 */
+	public long position() {
+		return written + buffer.position();
+	}
+
+	private void mark() throws IOException {
+		mark(null);
+	}
+
+	/**
+	 * record offset of a value, if the value is a child of top level structure.
+	 * 
+	 * @param key
+	 *            string value, may be a key of top level object
+	 */
+	private void mark(String key) throws IOException {
+		if (indexOffsets == null) {
+			return;
+		}
+		if (depth == 0) {
+			final long position = position();
+			if (topEnded && position != lastMark) {
+				throw new IOException("SteakGenerator: indexed output has one top level value");
+			}
+			// a scalar ends here, a structure or a custom type continues
+			topEnded = true;
+			lastMark = position;
+			return;
+		}
+		if (depth != 1 || arrayType != null) {
+			return;
+		}
+		final long position = position();
+		if (position == lastMark) {
+			// same value, delegated
+			return;
+		}
+		lastMark = position;
+		if (typed) {
+			typed = false;
+			return;
+		}
+
+		if (indexKeys == null || (indexSlot & 1) == 0) {
+			if (indexSize == indexOffsets.length) {
+				indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+			}
+			indexOffsets[indexSize++] = position;
+			if (indexKeys != null) {
+				indexKeys.add(key);
+			}
+		}
+		++indexSlot;
+	}
+
+	private void startStructure(boolean object) {
+		if (depth++ == 0) {
+			topEnded = false;
+			if (object && indexOffsets != null) {
+				indexKeys = new ArrayList<>();
+			}
+		}
+	}
+
+	/**
+	 * index value and position of the index on the last 9 bytes as an int64.
+	 */
+	private void writeIndex() throws IOException {
+		final long[] offsets = indexOffsets;
+		indexOffsets = null;
+
+		final long position = position();
+		writeStartObject(indexKeys == null ? 1 : 2);
+		write(SteakIndex.OFFSETS);
+		write(offsets, 0, indexSize);
+		if (indexKeys != null) {
+			write(SteakIndex.KEYS);
+			writeStartArray(indexKeys.size());
+			for (final String key : indexKeys) {
+				write(key);
+			}
+			writeEndArray();
+		}
+		writeEndObject();
+
+		ensureBuffer(9);
+		writeByte(0x0b);
+		buffer.putLong(position);
+	}
+
+	/**
+	 * generator never blocks on output. filled buffers are kept until {@link #flush(Object, CompletionHandler)}
+	 * writes them to out, {@link #close()} does not write.
+	 */
+	public SteakGenerator(final AsynchronousByteChannel out) {
+		this.out = null;
+		this.indexed = false;
+		this.asyncOut = out;
+		this.pending = new ArrayDeque<>();
+		this.recycled = new ConcurrentLinkedQueue<>();
+		this.strings = null;
+		this.schemas = null;
+		this.block = null;
+		writeHeader();
 	}
 
 	private void ensureBuffer(int size) throws IOException {
 		if (buffer.remaining() < size) {
-			flush();
+			drain();
 		}
 	}
 
@@ -45,9 +377,27 @@ public class SteakGenerator implements TBONGenerator {
 			i = -i;
 		}
 		first |= i & 0x3f;
-		if (i > 0x3f) {
+		// unsigned shift, -Integer.MIN_VALUE is Integer.MIN_VALUE
+		i >>>= 6;
+		if (i != 0) {
 			writeByte(first | 0x80);
-			writeVPInt(i >> 6);
+			writeVPInt(i);
+		} else {
+			writeByte(first);
+		}
+	}
+
+	private void writeVSLong(long l) {
+		int first = 0;
+		if (l < 0L) {
+			first |= 0x40;
+			l = -l;
+		}
+		first |= (int) (l & 0x3fL);
+		l >>>= 6;
+		if (l != 0L) {
+			writeByte(first | 0x80);
+			writeVPLong(l);
 		} else {
 			writeByte(first);
 		}
@@ -69,55 +419,332 @@ public class SteakGenerator implements TBONGenerator {
 		buffer.put((byte) l);
 	}
 
+	/**
+	 * check primitive array state for an element.
+	 * 
+	 * @return true if value should be written as an element of current primitive array
+	 */
+	private boolean arrayElement(Class<?> type) throws IOException {
+		if (arrayType == null) {
+			return false;
+		}
+		if (arrayType != type) {
+			throw new IOException("SteakGenerator: " + type + " value on " + arrayType + " array");
+		}
+		if (arrayRemaining == 0) {
+			throw new IOException("SteakGenerator: too many elements on " + arrayType + " array");
+		}
+		--arrayRemaining;
+		return true;
+	}
+
+	/**
+	 * strings up to this length are encoded in 63 bytes at most, 3 bytes per char.
+	 */
+	private static final int SHORT_STRING_CHARS = 20;
+
+	/**
+	 * length of UTF-8 encoded bytes, same as getBytes(UTF_8). unpaired surrogate is replaced to '?'.
+	 */
+	private static int utf8Length(String value) {
+		final int length = value.length();
+		int len = length;
+		for (int i = 0; i < length; ++i) {
+			final char c = value.charAt(i);
+			if (c < 0x80) {
+				continue;
+			} else if (c < 0x800) {
+				len += 1;
+			} else if (!Character.isSurrogate(c)) {
+				len += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				// 2 chars to 4 bytes
+				len += 2;
+				++i;
+			}
+		}
+		return len;
+	}
+
+	/**
+	 * encode value directly on buffer as UTF-8, flush if buffer is full.
+	 */
+	private void writeUTF8(String value) throws IOException {
+		final int length = value.length();
+		int i = 0;
+		while (i < length) {
+			ensureBuffer(4);
+
+			// ASCII run, as many as buffer space
+			final int asciiEnd = Math.min(length, i + buffer.remaining());
+			char c;
+			while (i < asciiEnd && (c = value.charAt(i)) < 0x80) {
+				buffer.put((byte) c);
+				++i;
+			}
+			if (i == length) {
+				break;
+			}
+
+			c = value.charAt(i);
+			if (c < 0x80) {
+				// buffer is full
+				continue;
+			}
+
+			ensureBuffer(4);
+			if (c < 0x800) {
+				buffer.put((byte) (0xc0 | (c >> 6)));
+				buffer.put((byte) (0x80 | (c & 0x3f)));
+			} else if (!Character.isSurrogate(c)) {
+				buffer.put((byte) (0xe0 | (c >> 12)));
+				buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+				buffer.put((byte) (0x80 | (c & 0x3f)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				final int cp = Character.toCodePoint(c, value.charAt(++i));
+				buffer.put((byte) (0xf0 | (cp >> 18)));
+				buffer.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+				buffer.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+				buffer.put((byte) (0x80 | (cp & 0x3f)));
+			} else {
+				buffer.put((byte) '?');
+			}
+			++i;
+		}
+	}
+
 	private void writeOctet(byte[] b) throws IOException {
 		if (buffer.remaining() < b.length) {
-			flush();
-			flushBuffer(ByteBuffer.wrap(b));
+			writeOctet(ByteBuffer.wrap(b));
 		} else {
 			buffer.put(b);
 		}
 	}
 
 	private void writeOctet(ByteBuffer b) throws IOException {
-		if (buffer.remaining() < b.remaining()) {
-			flush();
+		if (buffer.remaining() >= b.remaining()) {
+			buffer.put(b);
+		} else if (out instanceof GatheringByteChannel) {
+			// buffered bytes and payload by one write
+			buffer.flip();
+			gather[0] = buffer;
+			gather[1] = b;
+			try {
+				gatherWrite(gather);
+			} finally {
+				gather[1] = null;
+			}
+			buffer.clear();
+		} else if (out != null) {
+			drain();
 			flushBuffer(b);
 		} else {
-			buffer.put(b);
+			// async output keeps bytes of caller on own buffers
+			final int limit = b.limit();
+			while (b.hasRemaining()) {
+				if (!buffer.hasRemaining()) {
+					drain();
+				}
+				b.limit(Math.min(limit, b.position() + buffer.remaining()));
+				buffer.put(b);
+				b.limit(limit);
+			}
+		}
+	}
+
+	/**
+	 * write encoded values of {@link #fragment(WritableByteChannel)} generators as they are. fragments are written
+	 * by one gathering write if output is a {@link GatheringByteChannel}. generator with index, references or
+	 * schemas can not write fragments, as values of fragments are not indexed or numbered.
+	 */
+	public void writeFragment(ByteBuffer... fragments) throws IOException {
+		if (indexed || strings != null || schemas != null) {
+			throw new IOException("SteakGenerator: fragment can not be written with index, references or schemas");
 		}
+		if (arrayType != null) {
+			throw new IOException("SteakGenerator: fragment on " + arrayType + " array");
+		}
+		if (out == null) {
+			for (final ByteBuffer fragment : fragments) {
+				writeOctet(fragment);
+			}
+			return;
+		}
+
+		if (!(out instanceof GatheringByteChannel)) {
+			drain();
+			for (final ByteBuffer fragment : fragments) {
+				flushBuffer(fragment);
+			}
+			return;
+		}
+		final ByteBuffer[] buffers = new ByteBuffer[fragments.length + 1];
+		buffer.flip();
+		buffers[0] = buffer;
+		System.arraycopy(fragments, 0, buffers, 1, fragments.length);
+		gatherWrite(buffers);
+		buffer.clear();
+	}
+
+	private void gatherWrite(ByteBuffer[] buffers) throws IOException {
+		long remaining = 0L;
+		for (final ByteBuffer b : buffers) {
+			remaining += b.remaining();
+		}
+		written += remaining;
+		while (remaining > 0L) {
+			remaining -= ((GatheringByteChannel) out).write(buffers);
+		}
+	}
+
+	/**
+	 * write bytes of file from its position to output without copy on heap, position of file is advanced.
+	 */
+	private void transfer(FileChannel file, long size) throws IOException {
+		drain();
+		long position = file.position();
+		final long end = position + size;
+		while (position < end) {
+			final long n = file.transferTo(position, end - position, out);
+			if (n == 0L && position >= file.size()) {
+				throw new IOException("SteakGenerator: file ended before " + size + " bytes");
+			}
+			position += n;
+		}
+		file.position(position);
+		written += size;
 	}
 
 	private void flushBuffer(ByteBuffer b) throws IOException {
+		written += b.remaining();
 		while (b.hasRemaining()) {
 			out.write(b);
 		}
 	}
 
-	private void flush() throws IOException {
+	/**
+	 * asynchronous generator keeps buffered bytes until {@link #flush(Object, CompletionHandler)}. compressed bytes
+	 * are written as a block, smaller blocks by frequent flush are compressed less.
+	 */
+	@Override
+	public void flush() throws IOException {
+		drain();
+		if (block != null) {
+			block.flush();
+		}
+	}
+
+	/**
+	 * empty buffer to output, or to pending buffers of asynchronous generator.
+	 */
+	private void drain() throws IOException {
 		buffer.flip();
-		flushBuffer(buffer);
-		buffer.clear();
+		if (out != null) {
+			flushBuffer(buffer);
+			buffer.clear();
+			return;
+		}
+
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			return;
+		}
+		written += buffer.remaining();
+		pending.add(buffer);
+		buffer = recycled.poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * write all generated bytes to asynchronous channel. handler is completed with written byte count, after all
+	 * bytes are written. next flush should start after completion, as the channel allows one write at a time.
+	 */
+	public <A> void flush(A attachment, CompletionHandler<Long, ? super A> handler) throws IOException {
+		if (asyncOut == null) {
+			throw new IOException("SteakGenerator: not an asynchronous generator");
+		}
+
+		flush();
+		final ByteBuffer[] buffers = pending.toArray(new ByteBuffer[pending.size()]);
+		pending.clear();
+		new AsyncFlush<A>(buffers, attachment, handler).next();
+	}
+
+	/**
+	 * writes buffers one by one, each write is started on completion of previous one.
+	 */
+	private final class AsyncFlush<A> implements CompletionHandler<Integer, Void> {
+		private final ByteBuffer[] buffers;
+		private final A attachment;
+		private final CompletionHandler<Long, ? super A> handler;
+		private int index;
+		private long written;
+
+		AsyncFlush(ByteBuffer[] buffers, A attachment, CompletionHandler<Long, ? super A> handler) {
+			this.buffers = buffers;
+			this.attachment = attachment;
+			this.handler = handler;
+		}
+
+		void next() {
+			while (index < buffers.length && !buffers[index].hasRemaining()) {
+				buffers[index].clear();
+				recycled.add(buffers[index++]);
+			}
+			if (index == buffers.length) {
+				handler.completed(written, attachment);
+				return;
+			}
+
+			try {
+				asyncOut.write(buffers[index], null, this);
+			} catch (RuntimeException e) {
+				handler.failed(e, attachment);
+			}
+		}
+
+		@Override
+		public void completed(Integer result, Void v) {
+			written += result;
+			next();
+		}
+
+		@Override
+		public void failed(Throwable exc, Void v) {
+			handler.failed(exc, attachment);
+		}
 	}
 
 	@Override
 	public void close() throws IOException {
+		if (indexOffsets != null && depth == 0) {
+			writeIndex();
+		}
 		flush();
 	}
 
 	@Override
 	public void writeNull() throws IOException {
+		mark();
 		ensureBuffer(1);
 		writeByte(0x1e);
 	}
 
 	@Override
 	public void write(boolean value) throws IOException {
+		mark();
+		arrayElement(boolean.class);
 		ensureBuffer(1);
 		writeByte(value ? 0x1d : 0x1c);
 	}
 
 	@Override
 	public void write(byte value) throws IOException {
+		mark();
 		if (value == 0) {
 			ensureBuffer(1);
 			writeByte(0x00);
@@ -130,7 +757,11 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(short value) throws IOException {
-		if (value == 0) {
+		mark();
+		if (arrayElement(short.class)) {
+			ensureBuffer(2);
+			buffer.putShort(value);
+		} else if (value == 0) {
 			ensureBuffer(1);
 			writeByte(0x01);
 		} else if (value <= Byte.MAX_VALUE && value >= Byte.MIN_VALUE) {
@@ -149,7 +780,11 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(int value) throws IOException {
-		if (value == 0) {
+		mark();
+		if (arrayElement(int.class)) {
+			ensureBuffer(5);
+			writeVSInt(value);
+		} else if (value == 0) {
 			ensureBuffer(1);
 			writeByte(0x02);
 		} else if (value <= INT_VMAX && value >= INT_VMIN) {
@@ -173,7 +808,11 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(long value) throws IOException {
-		if (value == 0L) {
+		mark();
+		if (arrayElement(long.class)) {
+			ensureBuffer(10);
+			writeVSLong(value);
+		} else if (value == 0L) {
 			ensureBuffer(1);
 			writeByte(0x03);
 		} else if (value <= LONG_VMAX && value >= LONG_VMIN) {
@@ -195,7 +834,11 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(float value) throws IOException {
-		if (value == 0) {
+		mark();
+		if (arrayElement(float.class)) {
+			ensureBuffer(4);
+			buffer.putFloat(value);
+		} else if (value == 0) {
 			ensureBuffer(1);
 			writeByte(0x18);
 		} else {
@@ -207,7 +850,11 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(double value) throws IOException {
-		if (value == 0) {
+		mark();
+		if (arrayElement(double.class)) {
+			ensureBuffer(8);
+			buffer.putDouble(value);
+		} else if (value == 0) {
 			ensureBuffer(1);
 			writeByte(0x1a);
 		} else {
@@ -219,7 +866,11 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(char value) throws IOException {
-		if (value <= 0xff) {
+		mark();
+		if (arrayElement(char.class)) {
+			ensureBuffer(2);
+			buffer.putChar(value);
+		} else if (value <= 0xff) {
 			ensureBuffer(2);
 			writeByte(0x24);
 			writeByte(value);
@@ -232,11 +883,14 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void writeChar(int value) throws IOException {
+		mark();
 		if (!Character.isValidCodePoint(value)) {
 			throw new IOException("SteakGenerator: invalid unicode code point " + value);
 		}
 		if (value < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
 			write((char) value);
+		} else if (arrayType != null) {
+			throw new IOException("SteakGenerator: code point " + value + " on " + arrayType + " array");
 		} else {
 			ensureBuffer(6);
 			writeByte(0x26);
@@ -246,6 +900,7 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(BigInteger value) throws IOException {
+		mark();
 		if (value == null) {
 			writeNull();
 		} else if (BigInteger.ZERO.equals(value)) {
@@ -267,6 +922,7 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(BigDecimal value) throws IOException {
+		mark();
 		if (value == null) {
 			writeNull();
 		} else if (BigDecimal.ZERO.equals(value)) {
@@ -313,6 +969,7 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(ByteBuffer value) throws IOException {
+		mark();
 		if (value == null) {
 			writeNull();
 			return;
@@ -322,7 +979,8 @@ public class SteakGenerator implements TBONGenerator {
 			ensureBuffer(1 + len);
 			writeByte(0x80 + len);
 		} else {
-			ensureBuffer(6 + len);
+			// large payload is not copied to buffer, see writeOctet
+			ensureBuffer(len < BUFFER_SIZE - 6 ? 6 + len : 6);
 			writeByte(0xbf);
 			writeVPInt(len);
 		}
@@ -349,6 +1007,7 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(ReadableByteChannel value) throws IOException {
+		mark();
 		if (value == null) {
 			writeNull();
 			return;
@@ -357,25 +1016,58 @@ public class SteakGenerator implements TBONGenerator {
 		writeByte(0xbf);
 		writeByte(0);
 
-		final ByteBuffer streamBuffer = ByteBuffer.allocate(4096);
-		for (;;) {
-			int read = value.read(streamBuffer);
-			if (read == -1) {
-				break;
+		if (value instanceof FileChannel && out != null) {
+			final FileChannel file = (FileChannel) value;
+			// chunks of buffer size, so parsers read a chunk on their buffers
+			for (long remaining = file.size() - file.position(); remaining > 0L;) {
+				final int len = (int) Math.min(remaining, BUFFER_SIZE);
+				ensureBuffer(5);
+				writeVPInt(len);
+				transfer(file, len);
+				remaining -= len;
 			}
-			if (read > 0) {
-				ensureBuffer(5 + read);
-				writeVPInt(read);
-				streamBuffer.flip();
-				writeOctet(streamBuffer);
-				streamBuffer.clear();
+		} else {
+			// chunks are read on buffer after 2 bytes of length, 16383 bytes at most
+			for (;;) {
+				ensureBuffer(2 + MIN_STREAM_CHUNK);
+				final int p = buffer.position();
+				final int limit = buffer.limit();
+				buffer.position(p + 2);
+				buffer.limit(Math.min(limit, p + 2 + 0x3fff));
+				final int read;
+				try {
+					read = value.read(buffer);
+				} finally {
+					buffer.limit(limit);
+				}
+				if (read <= 0) {
+					buffer.position(p);
+					if (read == -1) {
+						break;
+					}
+					continue;
+				}
+
+				if (read > 0x7f) {
+					buffer.put(p, (byte) ((read & 0x7f) | 0x80));
+					buffer.put(p + 1, (byte) (read >> 7));
+				} else {
+					// 1 byte length, move back the chunk
+					buffer.put(p, (byte) read);
+					for (int i = p + 1, end = p + 1 + read; i < end; ++i) {
+						buffer.put(i, buffer.get(i + 1));
+					}
+					buffer.position(p + 1 + read);
+				}
 			}
 		}
+		ensureBuffer(1);
 		writeByte(0);
 	}
 
 	@Override
 	public void write(ReadableByteChannel value, int size) throws IOException {
+		mark();
 		if (size > STREAM_LEN_LIMIT) {
 			write(value);
 			return;
@@ -391,19 +1083,30 @@ public class SteakGenerator implements TBONGenerator {
 			ensureBuffer(1 + size);
 			writeByte(0x80 + size);
 		} else {
-			ensureBuffer(6 + size);
+			ensureBuffer(size < BUFFER_SIZE - 6 ? 6 + size : 6);
 			writeByte(0xbf);
 			writeVPInt(size);
 		}
 
+		if (value instanceof FileChannel && out != null) {
+			transfer((FileChannel) value, size);
+			return;
+		}
+
 		int transferred = 0;
 		while (size > transferred) {
 			if (!buffer.hasRemaining()) {
-				flush();
+				drain();
 			}
-			buffer.limit(Math.min(buffer.capacity(), buffer.position() + size - transferred));
+			final int limit = buffer.limit();
+			buffer.limit(Math.min(limit, buffer.position() + size - transferred));
 
-			int read = value.read(buffer);
+			final int read;
+			try {
+				read = value.read(buffer);
+			} finally {
+				buffer.limit(limit);
+			}
 			if (read == -1) {
 				throw new IOException(
 						"Stream end before specified size " + size + " (transferred=" + transferred + ")");
@@ -414,23 +1117,63 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(String value) throws IOException {
+		mark(value);
 		if (value == null) {
 			writeNull();
 			return;
 		}
-		final byte[] b = value.getBytes(StandardCharsets.UTF_8);
-		ensureBuffer(6 + b.length);
-		if (b.length < 63) {
-			writeByte(0xc0 + b.length);
+
+		if (strings != null) {
+			final Integer id = strings.get(value);
+			if (id != null) {
+				ensureBuffer(6);
+				writeByte(0x2f);
+				writeVPLong((long) id << 2);
+				return;
+			}
+		}
+
+		final int length = value.length();
+		if (length <= SHORT_STRING_CHARS) {
+			// encoded bytes fit in 1 byte header, patch header after encoding
+			ensureBuffer(1 + SHORT_STRING_CHARS * 3 + 4);
+			final int start = buffer.position();
+			buffer.position(start + 1);
+			writeUTF8(value);
+			final int len = buffer.position() - start - 1;
+			buffer.put(start, (byte) (0xc0 + len));
+			number(value, len);
+			return;
+		}
+
+		final int len = utf8Length(value);
+		ensureBuffer(6 + len);
+		if (len < 63) {
+			writeByte(0xc0 + len);
 		} else {
 			writeByte(0xff);
-			writeVPInt(b.length);
+			writeVPInt(len);
+		}
+		writeUTF8(value);
+		number(value, len);
+	}
+
+	/**
+	 * number a written string for references, on same condition with parser.
+	 * 
+	 * @param len
+	 *            encoded length
+	 */
+	private void number(String value, int len) {
+		if (strings != null && len >= SteakFactory.MIN_STRING_REFERENCE_LENGTH && len < 63
+				&& strings.size() < SteakFactory.MAX_STRING_REFERENCES) {
+			strings.put(value, strings.size());
 		}
-		writeOctet(b);
 	}
 
 	@Override
 	public void write(Date value) throws IOException {
+		mark();
 		if (value == null) {
 			writeNull();
 			return;
@@ -442,6 +1185,7 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void write(Calendar value) throws IOException {
+		mark();
 		if (value == null) {
 			writeNull();
 			return;
@@ -462,13 +1206,17 @@ public class SteakGenerator implements TBONGenerator {
 
 	@Override
 	public void writeStartArray() throws IOException {
+		mark();
 		ensureBuffer(2);
 		writeByte(0x6f);
 		writeByte(0);
+		++structures;
+		startStructure(false);
 	}
 
 	@Override
 	public void writeStartArray(int count) throws IOException {
+		mark();
 		if (count < 15) {
 			ensureBuffer(1);
 			writeByte(0x60 + count);
@@ -477,13 +1225,19 @@ public class SteakGenerator implements TBONGenerator {
 			writeByte(0x6f);
 			writeVPInt(count);
 		}
+		++structures;
+		startStructure(false);
 	}
 
 	@Override
 	public void writeStartPrimitiveArray(Class<?> type, int count) throws IOException {
+		mark();
 		if (!type.isPrimitive()) {
 			throw new IOException(type + " is not primitive");
 		}
+		if (arrayType != null) {
+			throw new IOException("SteakGenerator: primitive array in " + arrayType + " array");
+		}
 
 		ensureBuffer(6);
 		if (type == int.class) {
@@ -502,25 +1256,301 @@ public class SteakGenerator implements TBONGenerator {
 			writeByte(0x2e);
 		} else if (type == byte.class) {
 			throw new IOException("byte array should use write(byte[])");
+		} else {
+			throw new IOException(type + " is not an array element type");
 		}
 		writeVPInt(count);
+		arrayType = type;
+		arrayRemaining = count;
+		startStructure(false);
+	}
+
+	private void writePrimitiveArrayHeader(int tag, int count) throws IOException {
+		mark();
+		if (arrayType != null) {
+			throw new IOException("SteakGenerator: primitive array in " + arrayType + " array");
+		}
+		ensureBuffer(6);
+		writeByte(tag);
+		writeVPInt(count);
+		startStructure(false);
+	}
+
+	@Override
+	public void write(boolean[] value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(value, 0, value.length);
+	}
+
+	@Override
+	public void write(boolean[] value, int offset, int length) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		if (offset < 0 || length < 0 || offset > value.length - length) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		writePrimitiveArrayHeader(0x28, length);
+		final int end = offset + length;
+		while (offset < end) {
+			ensureBuffer(1);
+			for (int n = Math.min(end - offset, buffer.remaining()); n > 0; --n) {
+				writeByte(value[offset++] ? 0x1d : 0x1c);
+			}
+		}
+		writeEndArray();
+	}
+
+	@Override
+	public void write(short[] value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(ShortBuffer.wrap(value));
+	}
+
+	@Override
+	public void write(short[] value, int offset, int length) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(ShortBuffer.wrap(value, offset, length));
+	}
+
+	@Override
+	public void write(int[] value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(IntBuffer.wrap(value));
+	}
+
+	@Override
+	public void write(int[] value, int offset, int length) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(IntBuffer.wrap(value, offset, length));
+	}
+
+	@Override
+	public void write(long[] value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(LongBuffer.wrap(value));
+	}
+
+	@Override
+	public void write(long[] value, int offset, int length) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(LongBuffer.wrap(value, offset, length));
+	}
+
+	@Override
+	public void write(float[] value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(FloatBuffer.wrap(value));
+	}
+
+	@Override
+	public void write(float[] value, int offset, int length) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(FloatBuffer.wrap(value, offset, length));
+	}
+
+	@Override
+	public void write(double[] value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(DoubleBuffer.wrap(value));
+	}
+
+	@Override
+	public void write(double[] value, int offset, int length) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(DoubleBuffer.wrap(value, offset, length));
+	}
+
+	@Override
+	public void write(char[] value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+		write(value, 0, value.length);
+	}
+
+	@Override
+	public void write(char[] value, int offset, int length) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+
+		final CharBuffer src = CharBuffer.wrap(value, offset, length);
+		writePrimitiveArrayHeader(0x2e, length);
+		while (src.hasRemaining()) {
+			ensureBuffer(2);
+			final int n = Math.min(src.remaining(), buffer.remaining() >> 1);
+			final CharBuffer chunk = src.duplicate();
+			chunk.limit(chunk.position() + n);
+			buffer.asCharBuffer().put(chunk);
+			buffer.position(buffer.position() + (n << 1));
+			src.position(src.position() + n);
+		}
+		writeEndArray();
+	}
+
+	@Override
+	public void write(ShortBuffer value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+
+		writePrimitiveArrayHeader(0x29, value.remaining());
+		while (value.hasRemaining()) {
+			ensureBuffer(2);
+			final int n = Math.min(value.remaining(), buffer.remaining() >> 1);
+			final ShortBuffer chunk = value.duplicate();
+			chunk.limit(chunk.position() + n);
+			buffer.asShortBuffer().put(chunk);
+			buffer.position(buffer.position() + (n << 1));
+			value.position(value.position() + n);
+		}
+		writeEndArray();
+	}
+
+	@Override
+	public void write(IntBuffer value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+
+		writePrimitiveArrayHeader(0x2a, value.remaining());
+		while (value.hasRemaining()) {
+			ensureBuffer(5);
+			// signed 7bit encoded int takes 5 bytes at most
+			for (int n = Math.min(value.remaining(), buffer.remaining() / 5); n > 0; --n) {
+				writeVSInt(value.get());
+			}
+		}
+		writeEndArray();
+	}
+
+	@Override
+	public void write(LongBuffer value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+
+		writePrimitiveArrayHeader(0x2b, value.remaining());
+		while (value.hasRemaining()) {
+			ensureBuffer(10);
+			// signed 7bit encoded long takes 10 bytes at most
+			for (int n = Math.min(value.remaining(), buffer.remaining() / 10); n > 0; --n) {
+				writeVSLong(value.get());
+			}
+		}
+		writeEndArray();
+	}
+
+	@Override
+	public void write(FloatBuffer value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+
+		writePrimitiveArrayHeader(0x2c, value.remaining());
+		while (value.hasRemaining()) {
+			ensureBuffer(4);
+			final int n = Math.min(value.remaining(), buffer.remaining() >> 2);
+			final FloatBuffer chunk = value.duplicate();
+			chunk.limit(chunk.position() + n);
+			buffer.asFloatBuffer().put(chunk);
+			buffer.position(buffer.position() + (n << 2));
+			value.position(value.position() + n);
+		}
+		writeEndArray();
+	}
+
+	@Override
+	public void write(DoubleBuffer value) throws IOException {
+		if (value == null) {
+			writeNull();
+			return;
+		}
+
+		writePrimitiveArrayHeader(0x2d, value.remaining());
+		while (value.hasRemaining()) {
+			ensureBuffer(8);
+			final int n = Math.min(value.remaining(), buffer.remaining() >> 3);
+			final DoubleBuffer chunk = value.duplicate();
+			chunk.limit(chunk.position() + n);
+			buffer.asDoubleBuffer().put(chunk);
+			buffer.position(buffer.position() + (n << 3));
+			value.position(value.position() + n);
+		}
+		writeEndArray();
 	}
 
 	@Override
 	public void writeEndArray() throws IOException {
+		if (arrayType != null) {
+			if (arrayRemaining != 0) {
+				throw new IOException(
+						"SteakGenerator: " + arrayRemaining + " elements remained on " + arrayType + " array");
+			}
+			arrayType = null;
+		}
 		ensureBuffer(1);
 		writeByte(0x1f);
+		if (--depth == 0) {
+			topEnded = true;
+		}
 	}
 
 	@Override
 	public void writeStartObject() throws IOException {
+		mark();
 		ensureBuffer(2);
 		writeByte(0x7f);
 		writeByte(0);
+		++structures;
+		startStructure(true);
 	}
 
 	@Override
 	public void writeStartObject(int count) throws IOException {
+		mark();
 		if (count < 15) {
 			ensureBuffer(1);
 			writeByte(0x70 + count);
@@ -529,12 +1559,51 @@ public class SteakGenerator implements TBONGenerator {
 			writeByte(0x7f);
 			writeVPInt(count);
 		}
+		++structures;
+		startStructure(true);
+	}
+
+	@Override
+	public boolean writeStartObject(String[] keys) throws IOException {
+		if (schemas == null || keys.length == 0) {
+			writeStartObject(keys.length);
+			return false;
+		}
+
+		Integer id = schemas.get(Arrays.asList(keys));
+		if (id == null && schemas.size() >= SteakFactory.MAX_SCHEMAS) {
+			writeStartObject(keys.length);
+			return false;
+		}
+
+		mark();
+		ensureBuffer(10);
+		writeByte(0x2f);
+		if (id != null) {
+			writeVPLong((long) id << 2 | 2L);
+		} else {
+			// define schema on first use, keys are written as strings
+			id = schemas.size();
+			schemas.put(Arrays.asList(keys.clone()), id);
+			writeVPLong((long) id << 2 | 2L);
+			ensureBuffer(5);
+			writeVPInt(keys.length);
+			for (final String key : keys) {
+				write(key);
+			}
+		}
+		++structures;
+		startStructure(true);
+		return true;
 	}
 
 	@Override
 	public void writeEndObject() throws IOException {
 		ensureBuffer(1);
 		writeByte(0x1f);
+		if (--depth == 0) {
+			topEnded = true;
+		}
 	}
 
 	@Override
@@ -542,16 +1611,39 @@ public class SteakGenerator implements TBONGenerator {
 		if (typeName == null || typeName.isEmpty()) {
 			throw new IOException("SteakGenerator: custom type name should not empty");
 		}
-		final byte[] b = typeName.getBytes(StandardCharsets.UTF_8);
-		if (b.length < 16) {
-			ensureBuffer(1 + b.length);
-			writeByte(0x50 + b.length - 1);
+		mark();
+		typed = depth == 1;
+		if (depth == 0) {
+			topEnded = false;
+		}
+		final int len = utf8Length(typeName);
+		if (len < 16) {
+			ensureBuffer(1 + len);
+			writeByte(0x50 + len - 1);
 		} else {
-			ensureBuffer(6 + b.length);
+			ensureBuffer(6 + len);
 			writeByte(0x5f);
-			writeVPInt(b.length - 1);
+			writeVPInt(len - 1);
 		}
-		writeOctet(b);
+		writeUTF8(typeName);
 	}
 
+	@Override
+	public int nextReferenceId() {
+		return strings != null ? structures : -1;
+	}
+
+	@Override
+	public void writeReference(int id) throws IOException {
+		if (strings == null) {
+			throw new IOException("SteakGenerator: references are not enabled");
+		}
+		if (id < 0 || id >= structures) {
+			throw new IOException("SteakGenerator: invalid reference " + id);
+		}
+		mark();
+		ensureBuffer(10);
+		writeByte(0x2f);
+		writeVPLong((long) id << 2 | 1L);
+	}
 }
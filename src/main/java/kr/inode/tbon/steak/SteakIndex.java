@@ -0,0 +1,161 @@
+package kr.inode.tbon.steak;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kr.inode.tbon.TBONToken;
+
+/**
+ * random access on children of top level array or object, by offset index written by
+ * {@link SteakGenerator#SteakGenerator(java.nio.channels.WritableByteChannel, boolean)}.
+ * <p>
+ * the index follows the top level value as an object of "offsets" (long[]) and "keys" (strings, object only).
+ * last 9 bytes are an int64 value of the index position. offsets are positions from the header. a reader of one
+ * value reads the top level value as before, but a record stream reader reads the index as two more records.
+ */
+public class SteakIndex {
+	static final String OFFSETS = "offsets";
+	static final String KEYS = "keys";
+
+	private final ByteBuffer source;
+	private final long[] offsets;
+	private final List<String> keys;
+	private final Map<String, Integer> keyIndexes;
+
+	/**
+	 * map whole file as read only, file should be smaller than 2GB.
+	 */
+	public SteakIndex(FileChannel channel) throws IOException {
+		this(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+	}
+
+	/**
+	 * @param source
+	 *            whole document with index. position of source is not changed.
+	 */
+	public SteakIndex(ByteBuffer source) throws IOException {
+		this.source = source.slice();
+
+		final int limit = this.source.limit();
+		if (limit < SteakFactory.STEAK_HEADER.length + 9 || this.source.get(limit - 9) != 0x0b) {
+			throw new IOException("SteakIndex: index not found");
+		}
+		final long position = this.source.getLong(limit - 8);
+		if (position < SteakFactory.STEAK_HEADER.length || position > limit - 9) {
+			throw new IOException("SteakIndex: invalid index position " + position);
+		}
+
+		long[] offsets = null;
+		List<String> keys = null;
+		try (SteakParser parser = parserAt(position)) {
+			if (parser.nextToken() != TBONToken.Object) {
+				throw new IOException("SteakIndex: index should be an object");
+			}
+			while (parser.nextToken() != TBONToken.EndOfStructure) {
+				final String key = parser.readKey();
+				if (OFFSETS.equals(key) && parser.nextToken() == TBONToken.PrimitiveArrayOfLong) {
+					offsets = parser.readLongArray();
+				} else if (KEYS.equals(key) && parser.nextToken() == TBONToken.Array) {
+					keys = new ArrayList<>();
+					while (parser.nextToken() != TBONToken.EndOfStructure) {
+						keys.add(parser.currentToken() == TBONToken.String ? parser.readString() : null);
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		if (offsets == null || (keys != null && keys.size() != offsets.length)) {
+			throw new IOException("SteakIndex: invalid index");
+		}
+
+		this.offsets = offsets;
+		this.keys = keys;
+		if (keys != null) {
+			keyIndexes = new HashMap<>();
+			for (int i = keys.size() - 1; i >= 0; --i) {
+				keyIndexes.put(keys.get(i), i);
+			}
+		} else {
+			keyIndexes = null;
+		}
+	}
+
+	private SteakParser parserAt(long position) throws IOException {
+		final ByteBuffer b = source.duplicate();
+		b.position((int) position);
+		return new SteakParser(b, null, false);
+	}
+
+	/**
+	 * @return count of children
+	 */
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * @return true if top level is an object
+	 */
+	public boolean isObject() {
+		return keys != null;
+	}
+
+	/**
+	 * @return key of nth entry of top level object
+	 */
+	public String key(int n) {
+		if (keys == null) {
+			throw new IllegalStateException("SteakIndex: top level is not an object");
+		}
+		return keys.get(n);
+	}
+
+	/**
+	 * @return index of first entry of key, -1 if not exists.
+	 */
+	public int indexOf(String key) {
+		if (keyIndexes == null) {
+			return -1;
+		}
+		final Integer i = keyIndexes.get(key);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * @return position of nth child, or key of nth entry of object.
+	 */
+	public long offset(int n) {
+		return offsets[n];
+	}
+
+	/**
+	 * parser on nth child, {@link SteakParser#next()} reads the child. for object, parser is on the value of nth
+	 * entry. parser reads following values until end of top level structure.
+	 */
+	public SteakParser parser(int n) throws IOException {
+		final SteakParser parser = parserAt(offsets[n]);
+		if (keys != null) {
+			// skip key
+			parser.next();
+			parser.skipChildren();
+		}
+		return parser;
+	}
+
+	/**
+	 * parser on value of key.
+	 * 
+	 * @return parser, null if key is not exists.
+	 */
+	public SteakParser parser(String key) throws IOException {
+		final int n = indexOf(key);
+		return n < 0 ? null : parser(n);
+	}
+}
@@ -0,0 +1,311 @@
+package kr.inode.tbon.steak;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import kr.inode.tbon.TBONToken;
+
+/**
+ * lazy tree of a value on a ByteBuffer, e.g. a mapped file. a node records the offset of its value only, and
+ * decodes the value on {@link #value()}, or offsets and keys of children on first access of them. octets are
+ * slices of the source without copy. bytes of source should not be changed while nodes are used.
+ * <p>
+ * nodes are not thread safe. input written with references, schemas or compression is not supported, as a value
+ * of it depends on values before it.
+ */
+public final class SteakNode {
+	private final ByteBuffer source;
+	private final int offset;
+	/**
+	 * token of the value, null if not read yet.
+	 */
+	private TBONToken token;
+
+	private Object value;
+	private boolean decoded;
+
+	/**
+	 * offsets of elements, or of values of object entries, null if children are not read yet.
+	 */
+	private int[] offsets;
+	private TBONToken[] tokens;
+	/**
+	 * keys of object entries, null if not an object.
+	 */
+	private String[] keys;
+	private int size;
+	private SteakNode[] children;
+	private Map<String, Integer> keyIndexes;
+
+	/**
+	 * map whole file as read only, file should be smaller than 2GB.
+	 */
+	public SteakNode(FileChannel channel) throws IOException {
+		this(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+	}
+
+	/**
+	 * node of top level value.
+	 *
+	 * @param source
+	 *            whole document. position of source is not changed.
+	 */
+	public SteakNode(ByteBuffer source) throws IOException {
+		this.source = source.slice();
+		final int flags = SteakParser.checkHeader(this.source);
+		if (flags != 0) {
+			throw new IOException("SteakNode: unsupported header flags " + flags);
+		}
+		this.offset = SteakFactory.STEAK_HEADER.length;
+	}
+
+	private SteakNode(ByteBuffer source, int offset, TBONToken token) {
+		this.source = source;
+		this.offset = offset;
+		this.token = token;
+	}
+
+	/**
+	 * parser on the value, {@link SteakParser#next()} reads the value. parser reads following values until end of
+	 * enclosing structure.
+	 */
+	public SteakParser parser() throws IOException {
+		final ByteBuffer b = source.duplicate();
+		b.position(offset);
+		return new SteakParser(b, null, false);
+	}
+
+	public TBONToken token() throws IOException {
+		if (token == null) {
+			try (SteakParser parser = parser()) {
+				if (!parser.next()) {
+					throw new IOException("EOS on read");
+				}
+				token = parser.currentToken();
+			}
+		}
+		return token;
+	}
+
+	/**
+	 * decoded value, same types of {@link kr.inode.tbon.mapper.TBONReader}. octet is a read only slice of source.
+	 * array, object and custom type are not decoded, use {@link #get(int)} or
+	 * {@link kr.inode.tbon.mapper.TBONMapper#readFrom(SteakNode)}.
+	 */
+	public Object value() throws IOException {
+		if (decoded) {
+			return value;
+		}
+
+		try (SteakParser parser = parser()) {
+			if (!parser.next()) {
+				throw new IOException("EOS on read");
+			}
+			token = parser.currentToken();
+			value = decode(parser);
+		}
+		decoded = true;
+		return value;
+	}
+
+	private static Object decode(SteakParser parser) throws IOException {
+		switch (parser.currentToken()) {
+		case Null:
+			return null;
+		case False:
+			return Boolean.FALSE;
+		case True:
+			return Boolean.TRUE;
+		case Int8:
+			return parser.getByte();
+		case Int16:
+			return parser.getShort();
+		case Int32:
+			return parser.getInt();
+		case Int64:
+			return parser.getLong();
+		case Integer:
+			return parser.getInteger();
+		case Float32:
+			return parser.getFloat();
+		case Float64:
+			return parser.getDouble();
+		case Decimal:
+			return parser.getDecimal();
+		case Time:
+		case Date:
+		case DateTime:
+		case DateTimeTZ:
+			return parser.getDate();
+		case Character:
+			return parser.getChar();
+		case String:
+			return parser.readString();
+		case Octet:
+			return parser.readOctetBuffer().asReadOnlyBuffer();
+		case PrimitiveArrayOfBoolean:
+			return parser.readBooleanArray();
+		case PrimitiveArrayOfShort:
+			return parser.readShortArray();
+		case PrimitiveArrayOfInt:
+			return parser.readIntArray();
+		case PrimitiveArrayOfLong:
+			return parser.readLongArray();
+		case PrimitiveArrayOfFloat:
+			return parser.readFloatArray();
+		case PrimitiveArrayOfDouble:
+			return parser.readDoubleArray();
+		case PrimitiveArrayOfChar:
+			return parser.readCharArray();
+		default:
+			throw new IllegalStateException("SteakNode: not a scalar value, " + parser.currentToken());
+		}
+	}
+
+	/**
+	 * read offsets of children by skipping them, and keys of object.
+	 */
+	private void readChildren() throws IOException {
+		if (offsets != null) {
+			return;
+		}
+
+		try (SteakParser parser = parser()) {
+			if (!parser.next()) {
+				throw new IOException("EOS on read");
+			}
+			token = parser.currentToken();
+			if (token != TBONToken.Array && token != TBONToken.Object) {
+				throw new IllegalStateException("SteakNode: not an array or object, " + token);
+			}
+			final boolean object = token == TBONToken.Object;
+			final int count = parser.getElementCount();
+			final int capacity = count < 0 ? 16 : count;
+			int[] offsets = new int[capacity];
+			TBONToken[] tokens = new TBONToken[capacity];
+			String[] keys = object ? new String[capacity] : null;
+			int size = 0;
+			while (true) {
+				String key = null;
+				if (object) {
+					if (parser.nextToken() == TBONToken.EndOfStructure) {
+						break;
+					}
+					if (parser.currentToken() != TBONToken.String) {
+						throw new IOException("SteakNode: object key should be a string, but " + parser.currentToken());
+					}
+					key = parser.readKey();
+				}
+
+				final int position = offset + parser.position();
+				if (!parser.next()) {
+					throw new IOException("EOS on read");
+				}
+				if (parser.currentToken() == TBONToken.EndOfStructure) {
+					if (object) {
+						throw new IOException("SteakNode: no value of key " + key);
+					}
+					break;
+				}
+
+				if (size == offsets.length) {
+					final int grown = Math.max(16, size * 2);
+					offsets = Arrays.copyOf(offsets, grown);
+					tokens = Arrays.copyOf(tokens, grown);
+					if (object) {
+						keys = Arrays.copyOf(keys, grown);
+					}
+				}
+				offsets[size] = position;
+				tokens[size] = parser.currentToken();
+				if (object) {
+					keys[size] = key;
+				}
+				++size;
+				parser.skipChildren();
+			}
+
+			this.tokens = tokens;
+			this.keys = keys;
+			this.size = size;
+			this.children = new SteakNode[size];
+			this.offsets = offsets;
+		}
+	}
+
+	/**
+	 * @return count of elements of array or entries of object
+	 */
+	public int size() throws IOException {
+		readChildren();
+		return size;
+	}
+
+	/**
+	 * @return true if the value is an object
+	 */
+	public boolean isObject() throws IOException {
+		return token() == TBONToken.Object;
+	}
+
+	/**
+	 * @return key of nth entry of object
+	 */
+	public String key(int n) throws IOException {
+		readChildren();
+		if (keys == null) {
+			throw new IllegalStateException("SteakNode: not an object");
+		}
+		if (n < 0 || n >= size) {
+			throw new IndexOutOfBoundsException("SteakNode: " + n + " of " + size);
+		}
+		return keys[n];
+	}
+
+	/**
+	 * @return nth element of array, or value of nth entry of object
+	 */
+	public SteakNode get(int n) throws IOException {
+		readChildren();
+		if (n < 0 || n >= size) {
+			throw new IndexOutOfBoundsException("SteakNode: " + n + " of " + size);
+		}
+		SteakNode child = children[n];
+		if (child == null) {
+			child = new SteakNode(source, offsets[n], tokens[n]);
+			children[n] = child;
+		}
+		return child;
+	}
+
+	/**
+	 * @return index of first entry of key, -1 if not exists or not an object.
+	 */
+	public int indexOf(String key) throws IOException {
+		readChildren();
+		if (keys == null) {
+			return -1;
+		}
+		if (keyIndexes == null) {
+			keyIndexes = new HashMap<>();
+			for (int i = size - 1; i >= 0; --i) {
+				keyIndexes.put(keys[i], i);
+			}
+		}
+		final Integer i = keyIndexes.get(key);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * @return value of first entry of key, null if not exists.
+	 */
+	public SteakNode get(String key) throws IOException {
+		final int n = indexOf(key);
+		return n < 0 ? null : get(n);
+	}
+}
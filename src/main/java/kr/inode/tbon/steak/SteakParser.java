@@ -7,10 +7,13 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 
 import kr.inode.tbon.TBONParser;
 import kr.inode.tbon.TBONToken;
@@ -72,6 +75,7 @@ public class SteakParser implements TBONParser {
 							parser.currentToken = TBONToken.Int32;
 							parser.intValue = parser.shortValue & 0xffff;
 						}
+						break;
 					case 6: // uint32
 						parser.readToBuffer(4);
 						parser.intValue = parser.buffer.getInt();
@@ -79,6 +83,7 @@ public class SteakParser implements TBONParser {
 							parser.currentToken = TBONToken.Int64;
 							parser.longValue = parser.intValue & 0xffffffffL;
 						}
+						break;
 					case 7: // uint64
 						parser.readToBuffer(8);
 						parser.longValue = parser.buffer.getLong();
@@ -249,9 +254,12 @@ public class SteakParser implements TBONParser {
 						parser.currentToken = TBONToken.PrimitiveArrayOfChar;
 						break;
 					case 7:
-						throw new IOException("SteakParser: NOT USED type byte 0x2f");
+						parser.readReference();
+						return;
 					}
 					parser.elementCount = parser.readVInt();
+					parser.arrayToken = parser.currentToken;
+					parser.arrayRemaining = parser.elementCount;
 				}
 			},
 			// 6 decimal, positive scale
@@ -288,15 +296,43 @@ public class SteakParser implements TBONParser {
 				}
 			} };
 
+	/**
+	 * payload bytes of full bytes integers, by lower 3 bits of type byte.
+	 */
+	private static final int[] FULL_BYTES = { 1, 2, 4, 8, 1, 2, 4, 8 };
+
 	private static int initialBufferSize = 32;
 
-	private final ReadableByteChannel in;
+	/**
+	 * input channel, null if parser reads a ByteBuffer directly.
+	 */
+	private ReadableByteChannel in;
 	private TBONToken currentToken = TBONToken.NotAvailable;
-	private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+	private ByteBuffer buffer;
+
+	/**
+	 * true if bytes are pushed by {@link #feed(ByteBuffer)}.
+	 */
+	private final boolean nonBlocking;
+	private boolean headerChecked;
 
 	private int elementCount = -1;
 
+	/**
+	 * token of current primitive array, null if not in primitive array.
+	 */
+	private TBONToken arrayToken;
+	private int arrayRemaining;
+	/**
+	 * primitive array ended by current token, null if current token is not an end of primitive array.
+	 */
+	private TBONToken endedArrayToken;
+
 	private boolean inStream = false;
+	/**
+	 * true if bytes of current string or octet are not read yet.
+	 */
+	private boolean payloadPending;
 	private byte byteValue;
 	private short shortValue;
 	private int intValue;
@@ -308,15 +344,588 @@ public class SteakParser implements TBONParser {
 
 	private byte[] sharedBuffer = new byte[initialBufferSize];
 
+	/**
+	 * array and offset of bytes by {@link #stage(int)}.
+	 */
+	private byte[] stagedBytes;
+
+	/**
+	 * cache of object keys and custom type names, null if not use.
+	 */
+	private final KeyCache keyCache;
+
+	/**
+	 * value of 7bit encoded int by {@link #scanVInt(int)}.
+	 */
+	private int scannedValue;
+
+	/**
+	 * numbered strings for references, null if input is not written with references.
+	 */
+	private List<String> strings;
+	/**
+	 * count of started arrays and objects.
+	 */
+	private int structures;
+	/**
+	 * id of current array or object, or referred id.
+	 */
+	private int referenceId = -1;
+	/**
+	 * decoded value of current string, null if not decoded on {@link #next()}.
+	 */
+	private String stringValue;
+
+	/**
+	 * keys of defined schemas, null if input is not written with schemas.
+	 */
+	private List<String[]> schemas;
+	/**
+	 * keys of current schema object, until the object is tracked.
+	 */
+	private String[] schemaKeys;
+	/**
+	 * keys of open structures with schemas, null for others.
+	 */
+	private String[][] frameKeys;
+	/**
+	 * keys and values read on open structures, odd if a value is expected.
+	 */
+	private int[] frameSlots;
+	private int frameDepth;
+
+	/**
+	 * count of arrays and objects started and not ended, input should not end in them.
+	 */
+	private int openStructures;
+
+	/**
+	 * decompressing channel of last compressed input, kept for reset.
+	 */
+	private BlockReadableChannel block;
+
 	public SteakParser(ReadableByteChannel in) throws IOException {
+		this(in, null);
+	}
+
+	SteakParser(ReadableByteChannel in, KeyCache keyCache) throws IOException {
 		this.in = in;
+		this.keyCache = keyCache;
+		this.nonBlocking = false;
+		this.buffer = ByteBuffer.allocate(8192);
+		buffer.flip();
+
+		checkHeader();
+	}
+
+	/**
+	 * non-blocking parser, input bytes are pushed by {@link #feed(ByteBuffer)}. {@link #next()} returns false and
+	 * current token is {@link TBONToken#NeedMoreInput} until whole bytes of next token are fed. bytes of string and
+	 * octet are part of the token, so {@link #readString()} and {@link #readOctet()} never wait.
+	 * <p>
+	 * bulk reads of primitive array need all elements are fed, use {@link #next()} for each element if not.
+	 */
+	public SteakParser() {
+		this((KeyCache) null);
+	}
+
+	SteakParser(KeyCache keyCache) {
+		this.in = null;
+		this.keyCache = keyCache;
+		this.nonBlocking = true;
+		this.buffer = ByteBuffer.allocate(8192);
+		buffer.flip();
+	}
+
+	/**
+	 * push input bytes to non-blocking parser. all remaining bytes of input are copied.
+	 */
+	public void feed(ByteBuffer input) throws IOException {
+		if (!nonBlocking) {
+			throw new IOException("SteakParser: not a non-blocking parser");
+		}
+
+		final int size = input.remaining();
+		if (buffer.capacity() - buffer.limit() >= size) {
+			final int position = buffer.position();
+			final int limit = buffer.limit();
+			buffer.limit(limit + size);
+			buffer.position(limit);
+			buffer.put(input);
+			buffer.position(position);
+			return;
+		}
+
+		if (buffer.capacity() - buffer.remaining() >= size) {
+			buffer.compact();
+		} else {
+			final ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.remaining() + size));
+			grown.put(buffer);
+			buffer = grown;
+		}
+		buffer.put(input);
+		buffer.flip();
+	}
+
+	/**
+	 * parser reads directly on remaining bytes of source, e.g. {@link java.nio.MappedByteBuffer} from
+	 * {@link java.nio.channels.FileChannel#map}. octet and string do not copied by {@link #readOctetBuffer()}.
+	 * position of source is not changed.
+	 */
+	public SteakParser(ByteBuffer source) throws IOException {
+		this(source, null);
+	}
+
+	SteakParser(ByteBuffer source, KeyCache keyCache) throws IOException {
+		this(source, keyCache, true);
+	}
+
+	/**
+	 * @param header
+	 *            false if source starts on a value, not on header
+	 */
+	SteakParser(ByteBuffer source, KeyCache keyCache, boolean header) throws IOException {
+		this.in = null;
+		this.keyCache = keyCache;
+		this.nonBlocking = false;
+		this.buffer = source.slice();
+
+		if (header) {
+			checkHeader();
+		}
+	}
+
+	/**
+	 * check header bytes at start of source, position of source is not changed.
+	 *
+	 * @return flags of header
+	 */
+	static int checkHeader(ByteBuffer source) throws IOException {
+		final int length = SteakFactory.STEAK_HEADER.length;
+		final int p = source.position();
+		if (source.limit() - p < length) {
+			throw new IOException("EOS on read");
+		}
+		for (int i = 0; i < length - 1; ++i) {
+			if (source.get(p + i) != SteakFactory.STEAK_HEADER[i]) {
+				throw new IOException("SteakParser: header not matched");
+			}
+		}
+		final int flags = source.get(p + length - 1);
+		if ((flags & ~(SteakFactory.HEADER_REFERENCES | SteakFactory.HEADER_SCHEMAS
+				| SteakFactory.HEADER_COMPRESSED)) != 0) {
+			throw new IOException("SteakParser: unsupported header flags " + flags);
+		}
+		return flags;
+	}
+
+	private void checkHeader() throws IOException {
+		final int length = SteakFactory.STEAK_HEADER.length;
+		readOnSharedBuffer(0, length);
+		final int flags = checkHeader(ByteBuffer.wrap(sharedBuffer, 0, length));
+		if ((flags & SteakFactory.HEADER_COMPRESSED) != 0) {
+			if (nonBlocking) {
+				throw new IOException("SteakParser: compressed input on non-blocking parser");
+			}
+			decompress(SteakCompression.of(readByte() & 0xff));
+		}
+
+		if ((flags & SteakFactory.HEADER_REFERENCES) == 0) {
+			strings = null;
+		} else if (strings == null) {
+			strings = new ArrayList<>();
+		} else {
+			strings.clear();
+		}
+		structures = 0;
+
+		if ((flags & SteakFactory.HEADER_SCHEMAS) == 0) {
+			schemas = null;
+		} else if (schemas == null) {
+			schemas = new ArrayList<>();
+			frameKeys = new String[16][];
+			frameSlots = new int[16];
+		} else {
+			schemas.clear();
+		}
+		schemaKeys = null;
+		frameDepth = 0;
+		openStructures = 0;
+		headerChecked = true;
+	}
+
+	/**
+	 * read following bytes through a decompressing channel. remaining bytes on buffer are the first compressed
+	 * bytes, or all of them if parser reads a ByteBuffer.
+	 */
+	private void decompress(SteakCompression compression) throws IOException {
+		if (block == null || block.compression() != compression) {
+			block = new BlockReadableChannel(compression);
+		}
+		block.reset(in, buffer);
+		if (in == null) {
+			buffer = ByteBuffer.allocate(8192);
+		} else {
+			buffer.clear();
+		}
 		buffer.flip();
+		in = block;
+	}
+
+	/**
+	 * read value of type byte 0x2f. lower 2 bits are kind of the value, 0 for a string reference, 1 for an array
+	 * or object reference, and 2 for a schema object. upper bits are the id.
+	 */
+	private void readReference() throws IOException {
+		checkReference();
+		final long value = readVLong();
+		final int id = (int) (value >>> 2);
+		switch ((int) value & 0x03) {
+		case 0:
+			if (strings == null || id >= strings.size()) {
+				throw new IOException("SteakParser: unknown string reference " + id);
+			}
+			currentToken = TBONToken.String;
+			stringValue = strings.get(id);
+			elementCount = -1;
+			inStream = false;
+			break;
+		case 1:
+			if (strings == null) {
+				throw new IOException("SteakParser: references are not enabled");
+			}
+			currentToken = TBONToken.Reference;
+			referenceId = id;
+			break;
+		case 2:
+			schemaKeys = schema(id);
+			currentToken = TBONToken.Object;
+			elementCount = schemaKeys.length;
+			referenceId = strings != null ? structures : -1;
+			++structures;
+			break;
+		default:
+			throw new IOException("SteakParser: unknown reference kind " + value);
+		}
+	}
+
+	private void checkReference() throws IOException {
+		if (strings == null && schemas == null) {
+			throw new IOException("SteakParser: NOT USED type byte 0x2f");
+		}
+	}
+
+	/**
+	 * keys of schema id. a new schema is defined by count of keys and the keys, on the first use.
+	 */
+	private String[] schema(int id) throws IOException {
+		if (schemas == null) {
+			throw new IOException("SteakParser: schemas are not enabled");
+		}
+		if (id < schemas.size()) {
+			return schemas.get(id);
+		}
+		if (id > schemas.size()) {
+			throw new IOException("SteakParser: unknown schema " + id);
+		}
+
+		final String[] keys = new String[readVInt()];
+		for (int i = 0; i < keys.length; ++i) {
+			final byte b = readByte();
+			if (b == 0x2f) {
+				final long value = readVLong();
+				final int stringId = (int) (value >>> 2);
+				if ((value & 0x03) != 0 || strings == null || stringId >= strings.size()) {
+					throw new IOException("SteakParser: invalid key reference of schema " + id);
+				}
+				keys[i] = strings.get(stringId);
+				continue;
+			}
+			if ((b & 0xc0) != 0xc0) {
+				throw new IOException("SteakParser: invalid key of schema " + id);
+			}
+			int len = b & 0x3f;
+			if (len == 0x3f) {
+				len = readVInt();
+			}
+			keys[i] = numberString(b, len);
+			if (keys[i] == null) {
+				keys[i] = readShortString(len);
+			}
+		}
+		schemas.add(keys);
+		return keys;
+	}
+
+	/**
+	 * scan a schema definition at position p of buffer, if id is a new schema.
+	 * 
+	 * @return position after the definition, -1 if not available.
+	 */
+	private int scanSchema(int p, int id) {
+		if (schemas == null || id != schemas.size()) {
+			return p;
+		}
+		p = scanVInt(p);
+		for (int count = scannedValue; count > 0 && p >= 0; --count) {
+			if (p >= buffer.limit()) {
+				return -1;
+			}
+			final byte b = buffer.get(p++);
+			if (b == 0x2f) {
+				p = scanVInt(p);
+				continue;
+			}
+			final int len = b & 0x3f;
+			if (len == 0x3f) {
+				p = scanVInt(p);
+				p = p < 0 ? -1 : available(p + scannedValue);
+			} else {
+				p = available(p + len);
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * track structures and values for keys of schema objects, after a token is read.
+	 */
+	private void track() {
+		switch (currentToken) {
+		case Array:
+		case Object:
+			if (frameDepth == frameKeys.length) {
+				frameKeys = Arrays.copyOf(frameKeys, frameDepth * 2);
+				frameSlots = Arrays.copyOf(frameSlots, frameDepth * 2);
+			}
+			frameKeys[frameDepth] = schemaKeys;
+			frameSlots[frameDepth++] = 0;
+			schemaKeys = null;
+			break;
+		case EndOfStructure:
+			if (frameDepth > 0) {
+				--frameDepth;
+			}
+			valueDone();
+			break;
+		case CustomType:
+		case PrimitiveArrayOfBoolean:
+		case PrimitiveArrayOfShort:
+		case PrimitiveArrayOfInt:
+		case PrimitiveArrayOfLong:
+		case PrimitiveArrayOfFloat:
+		case PrimitiveArrayOfDouble:
+		case PrimitiveArrayOfChar:
+			// value is not ended
+			break;
+		default:
+			valueDone();
+		}
+	}
+
+	/**
+	 * a value of current structure is ended, next is a key on schema object.
+	 */
+	private void valueDone() {
+		if (frameDepth > 0 && frameKeys[frameDepth - 1] != null) {
+			++frameSlots[frameDepth - 1];
+		}
+	}
+
+	/**
+	 * set next key of current schema object as current token.
+	 * 
+	 * @return false if a key is not expected
+	 */
+	private boolean nextSchemaKey() {
+		if (schemas == null || frameDepth == 0) {
+			return false;
+		}
+		final String[] keys = frameKeys[frameDepth - 1];
+		final int slot = frameSlots[frameDepth - 1];
+		if (keys == null || (slot & 1) != 0 || slot >> 1 >= keys.length) {
+			return false;
+		}
+		frameSlots[frameDepth - 1] = slot + 1;
+		currentToken = TBONToken.String;
+		stringValue = keys[slot >> 1];
+		elementCount = -1;
+		inStream = false;
+		return true;
+	}
+
+	/**
+	 * number a string of len bytes as generator does, if input is written with references.
+	 * 
+	 * @param b
+	 *            type byte
+	 * @return decoded string if numbered, null if not.
+	 */
+	private String numberString(byte b, int len) throws IOException {
+		if (strings == null || (b & 0x3f) == 0x3f || len < SteakFactory.MIN_STRING_REFERENCE_LENGTH) {
+			return null;
+		}
+		final String value = readShortString(len);
+		if (strings.size() < SteakFactory.MAX_STRING_REFERENCES) {
+			strings.add(value);
+		}
+		return value;
+	}
+
+	/**
+	 * scan 7bit encoded int at position p of buffer, value is set on {@link #scannedValue}.
+	 *
+	 * @return position after the int, -1 if not available.
+	 */
+	private int scanVInt(int p) {
+		final int limit = buffer.limit();
+		int value = 0;
+		int shift = 0;
+		byte r;
+		do {
+			if (p >= limit) {
+				return -1;
+			}
+			r = buffer.get(p++);
+			value |= (r & 0x7f) << shift;
+			shift += 7;
+		} while (r < 0);
+		scannedValue = value;
+		return p;
+	}
+
+	private int available(int end) {
+		return end <= buffer.limit() ? end : -1;
+	}
+
+	/**
+	 * scan next token at position p of buffer without consuming, includes bytes of string, octet and other
+	 * values. children of array and object are not included.
+	 *
+	 * @return end position of the token, -1 if not available.
+	 */
+	private int scanToken(int p) {
+		if (arrayToken != null) {
+			if (arrayRemaining == 0) {
+				return available(p + 1);
+			}
+			switch (arrayToken) {
+			case PrimitiveArrayOfShort:
+			case PrimitiveArrayOfChar:
+				return available(p + 2);
+			case PrimitiveArrayOfInt:
+			case PrimitiveArrayOfLong:
+				return scanVInt(p);
+			case PrimitiveArrayOfFloat:
+				return available(p + 4);
+			case PrimitiveArrayOfDouble:
+				return available(p + 8);
+			default:
+				return available(p + 1);
+			}
+		}
 
-		// check header bytes
-		readOnSharedBuffer(0, 5);
-		if (!Arrays.equals(SteakFactory.STEAK_HEADER, Arrays.copyOf(sharedBuffer, 5))) {
-			throw new IOException("SteakParser: header not matched");
+		if (p >= buffer.limit()) {
+			return -1;
+		}
+		final int b = buffer.get(p++);
+		if ((b & 0xc0) == 0) {
+			switch (b >> 3) {
+			case 1: // full bytes
+				return available(p + FULL_BYTES[b & 0x07]);
+			case 2: // variable bits
+				return (b & 0x03) == 0x03 ? available(p + 1) : scanVInt(p);
+			case 3: // null boolean float
+				switch (b & 0x07) {
+				case 1:
+					return available(p + 4);
+				case 3:
+					return available(p + 8);
+				default:
+					return p;
+				}
+			case 4: // date time char
+				switch (b & 0x07) {
+				case 2:
+					for (int i = 0; i < 4 && p >= 0; ++i) {
+						p = scanVInt(p);
+					}
+					return p;
+				case 4:
+					return available(p + 1);
+				case 5:
+					return available(p + 2);
+				case 6:
+					return scanVInt(p);
+				default:
+					return p;
+				}
+			case 5: // primitive array
+				if ((b & 0x07) == 0x07) {
+					p = scanVInt(p);
+					if (p < 0) {
+						return -1;
+					}
+					return (scannedValue & 0x03) == 2 ? scanSchema(p, scannedValue >>> 2) : p;
+				}
+				return scanVInt(p);
+			case 6: // decimal
+			case 7:
+				final int scale = b & 0x07;
+				if (b >> 3 == 6 ? scale == 7 : scale == 0) {
+					p = scanVInt(p);
+					if (p < 0) {
+						return -1;
+					}
+				}
+				p = scanVInt(p);
+				return p < 0 ? -1 : available(p + scannedValue);
+			default: // zero
+				return p;
+			}
+		}
+
+		if ((b & 0x80) == 0) {
+			// variable lengths
+			int len = b & 0x0f;
+			if (len == 0x0f) {
+				p = scanVInt(p);
+				if (p < 0) {
+					return -1;
+				}
+				len = scannedValue;
+			}
+			switch ((b & 0x30) >> 4) {
+			case 0: // BigInteger
+				return available(p + len);
+			case 1: // CustomType
+				return available(p + len + ((b & 0x0f) == 0x0f && len == 0 ? 0 : 1));
+			default: // Array, Object
+				return p;
+			}
+		}
+
+		// octet or string
+		int len = b & 0x3f;
+		if (len == 0x3f) {
+			p = scanVInt(p);
+			if (p < 0) {
+				return -1;
+			}
+			if (scannedValue == 0) {
+				// chunks, until zero length chunk
+				do {
+					p = scanVInt(p);
+					if (p < 0) {
+						return -1;
+					}
+					p += scannedValue;
+				} while (scannedValue != 0);
+				return available(p);
+			}
+			len = scannedValue;
 		}
+		return available(p + len);
 	}
 
 	private void readOnSharedBuffer(int offset, int len) throws IOException {
@@ -341,11 +950,47 @@ public class SteakParser implements TBONParser {
 		}
 	}
 
+	/**
+	 * make next len bytes available on {@link #stagedBytes} without allocation. array of heap buffer is used
+	 * directly, or bytes are copied on shared buffer.
+	 * 
+	 * @return offset of bytes on stagedBytes
+	 */
+	private int stage(int len) throws IOException {
+		readToBuffer(len);
+		if (buffer.hasArray()) {
+			final int position = buffer.position();
+			buffer.position(position + len);
+			stagedBytes = buffer.array();
+			return buffer.arrayOffset() + position;
+		}
+
+		readOnSharedBuffer(0, len);
+		stagedBytes = sharedBuffer;
+		return 0;
+	}
+
+	/**
+	 * decode UTF-8 bytes, ASCII only bytes are copied without decoding.
+	 */
+	static String decodeString(byte[] b, int offset, int len) {
+		for (int i = offset, end = offset + len; i < end; ++i) {
+			if (b[i] < 0) {
+				return new String(b, offset, len, StandardCharsets.UTF_8);
+			}
+		}
+		return new String(b, offset, len, StandardCharsets.ISO_8859_1);
+	}
+
 	private void readToBuffer(int size) throws IOException {
 		if (buffer.remaining() >= size) {
 			return;
 		}
 
+		if (in == null) {
+			throw new IOException("EOS on read");
+		}
+
 		int read = buffer.remaining();
 		buffer.compact();
 		while (read < size) {
@@ -358,10 +1003,52 @@ public class SteakParser implements TBONParser {
 		buffer.flip();
 	}
 
+	/**
+	 * read more bytes of input to buffer.
+	 * 
+	 * @return false if input is ended
+	 */
+	private boolean fillBuffer() throws IOException {
+		if (in == null) {
+			return false;
+		}
+
+		buffer.compact();
+		try {
+			int r;
+			do {
+				r = in.read(buffer);
+				if (r == -1) {
+					return false;
+				}
+			} while (r == 0);
+			return true;
+		} finally {
+			buffer.flip();
+		}
+	}
+
+	/**
+	 * position of next byte on the source of parser on a ByteBuffer, from position of the source.
+	 */
+	int position() {
+		return buffer.position();
+	}
+
 	@Override
 	public void close() throws IOException {
 	}
 
+	private void readFully(byte[] dst, int offset, int len) throws IOException {
+		while (len > 0) {
+			readToBuffer(Math.min(len, buffer.capacity()));
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(dst, offset, n);
+			offset += n;
+			len -= n;
+		}
+	}
+
 	private byte readByte() throws IOException {
 		readToBuffer(1);
 		return buffer.get();
@@ -395,6 +1082,22 @@ public class SteakParser implements TBONParser {
 		return i;
 	}
 
+	private long readVSLong() throws IOException {
+		byte r = readByte();
+		final boolean neg = (r & 0x40) == 0x40;
+		long l = r & 0x3fL;
+		int shift = 6;
+		while (r < 0) {
+			r = readByte();
+			l |= (r & 0x7fL) << shift;
+			shift += 7;
+		}
+		if (neg) {
+			l = -l;
+		}
+		return l;
+	}
+
 	private long readVLong() throws IOException {
 		long i = 0;
 		byte r;
@@ -407,9 +1110,136 @@ public class SteakParser implements TBONParser {
 		return i;
 	}
 
+	private boolean readBooleanElement() throws IOException {
+		final byte b = readByte();
+		if (b == 0x1d) {
+			return true;
+		} else if (b == 0x1c) {
+			return false;
+		}
+		throw new IOException("SteakParser: invalid boolean element " + b);
+	}
+
+	private void nextArrayElement() throws IOException {
+		if (arrayRemaining == 0) {
+			endArray();
+			return;
+		}
+
+		--arrayRemaining;
+		switch (arrayToken) {
+		case PrimitiveArrayOfBoolean:
+			currentToken = readBooleanElement() ? TBONToken.True : TBONToken.False;
+			break;
+		case PrimitiveArrayOfShort:
+			currentToken = TBONToken.Int16;
+			readToBuffer(2);
+			shortValue = buffer.getShort();
+			break;
+		case PrimitiveArrayOfInt:
+			currentToken = TBONToken.Int32;
+			intValue = readVSInt();
+			break;
+		case PrimitiveArrayOfLong:
+			currentToken = TBONToken.Int64;
+			longValue = readVSLong();
+			break;
+		case PrimitiveArrayOfFloat:
+			currentToken = TBONToken.Float32;
+			readToBuffer(4);
+			floatValue = buffer.getFloat();
+			break;
+		case PrimitiveArrayOfDouble:
+			currentToken = TBONToken.Float64;
+			readToBuffer(8);
+			doubleValue = buffer.getDouble();
+			break;
+		case PrimitiveArrayOfChar:
+			currentToken = TBONToken.Character;
+			readToBuffer(2);
+			charValue = buffer.getChar();
+			break;
+		default:
+			throw new IOException("SteakParser: not a primitive array " + arrayToken);
+		}
+	}
+
+	private void endArray() throws IOException {
+		if (readByte() != 0x1f) {
+			throw new IOException("SteakParser: end of " + arrayToken + " not matched");
+		}
+		endedArrayToken = arrayToken;
+		arrayToken = null;
+		currentToken = TBONToken.EndOfStructure;
+		if (schemas != null) {
+			valueDone();
+		}
+	}
+
+	/**
+	 * @return count of elements to read, -1 if primitive array is already ended
+	 */
+	private int beginArrayRead(TBONToken token, int length) throws IOException {
+		if (arrayToken == null && currentToken == TBONToken.EndOfStructure && endedArrayToken == token) {
+			return -1;
+		}
+		if (arrayToken != token) {
+			throw new IOException("SteakParser: current token is not " + token);
+		}
+		return Math.min(length, arrayRemaining);
+	}
+
+	/**
+	 * @return count
+	 */
+	private int endArrayRead(int count) throws IOException {
+		if (count < 0) {
+			return count;
+		}
+		arrayRemaining -= count;
+		if (arrayRemaining == 0) {
+			endArray();
+		}
+		return count;
+	}
+
 	@Override
 	public boolean next() throws IOException {
-		readToBuffer(1);
+		if (payloadPending) {
+			skipPayload();
+		}
+		stringValue = null;
+		endedArrayToken = null;
+
+		if (nonBlocking && !headerChecked) {
+			if (buffer.remaining() < SteakFactory.STEAK_HEADER.length) {
+				currentToken = TBONToken.NeedMoreInput;
+				return false;
+			}
+			checkHeader();
+		}
+		if (nextSchemaKey()) {
+			return true;
+		}
+		if (nonBlocking && scanToken(buffer.position()) < 0) {
+			currentToken = TBONToken.NeedMoreInput;
+			return false;
+		}
+
+		if (arrayToken != null) {
+			nextArrayElement();
+			return true;
+		}
+
+		if (!buffer.hasRemaining() && !fillBuffer()) {
+			if (openStructures > 0 || currentToken == TBONToken.CustomType) {
+				// a structure or a typed value is not ended
+				throw new IOException("EOS on read");
+			}
+			// input is ended between values
+			currentToken = TBONToken.NotAvailable;
+			return false;
+		}
 
 		final byte b = buffer.get();
 		if ((b & 0xc0) == 0) {
@@ -436,16 +1266,19 @@ public class SteakParser implements TBONParser {
 			case 1: // CustomType
 				++len;
 				currentToken = TBONToken.CustomType;
-				readOnSharedBuffer(0, len);
-				objectValue = new String(sharedBuffer, 0, len, StandardCharsets.UTF_8);
+				objectValue = readShortString(len);
 				break;
 			case 2: // Array
 				currentToken = TBONToken.Array;
 				elementCount = len;
+				referenceId = strings != null ? structures : -1;
+				++structures;
 				break;
 			case 3: // Object
 				currentToken = TBONToken.Object;
 				elementCount = len;
+				referenceId = strings != null ? structures : -1;
+				++structures;
 				break;
 			}
 		} else {
@@ -467,12 +1300,316 @@ public class SteakParser implements TBONParser {
 			}
 
 			elementCount = len;
-			return true;
+			if (currentToken == TBONToken.String) {
+				stringValue = numberString(b, len);
+			}
+			payloadPending = stringValue == null;
+		}
+
+		switch (currentToken) {
+		case Array:
+		case Object:
+			++openStructures;
+			break;
+		case EndOfStructure:
+			if (openStructures > 0) {
+				--openStructures;
+			}
+			break;
+		default:
 		}
+		if (schemas != null) {
+			track();
+		}
+		return true;
+	}
 
+	@Override
+	public boolean skipValue() throws IOException {
+		if (!next()) {
+			return false;
+		}
+		skipChildren();
 		return true;
 	}
 
+	@Override
+	public void skipChildren() throws IOException {
+		if (arrayToken != null) {
+			if (currentToken == arrayToken) {
+				skipElements(arrayToken.ordinal() - TBONToken.PrimitiveArrayOfBoolean.ordinal(), arrayRemaining);
+				arrayRemaining = 0;
+				endArray();
+			}
+			return;
+		}
+
+		switch (currentToken) {
+		case String:
+		case Octet:
+			if (payloadPending) {
+				skipPayload();
+			}
+			break;
+		case CustomType:
+			skipStructure(skipToken());
+			currentToken = TBONToken.EndOfStructure;
+			if (schemas != null) {
+				valueDone();
+			}
+			break;
+		case Array:
+		case Object:
+			skipStructure(1);
+			currentToken = TBONToken.EndOfStructure;
+			if (openStructures > 0) {
+				--openStructures;
+			}
+			if (schemas != null) {
+				track();
+			}
+			break;
+		default:
+		}
+	}
+
+	/**
+	 * skip tokens until depth of structure is 0.
+	 */
+	private void skipStructure(int depth) throws IOException {
+		while (depth > 0) {
+			depth += skipToken();
+		}
+	}
+
+	/**
+	 * skip unread bytes of current string or octet.
+	 */
+	private void skipPayload() throws IOException {
+		payloadPending = false;
+		if (inStream) {
+			skipChunks();
+			inStream = false;
+		} else {
+			skipBytes(elementCount);
+		}
+	}
+
+	private void skipChunks() throws IOException {
+		for (int len = readVInt(); len > 0; len = readVInt()) {
+			skipBytes(len);
+		}
+	}
+
+	/**
+	 * skip n bytes of input. seekable channel is positioned directly.
+	 */
+	private void skipBytes(long n) throws IOException {
+		final int remaining = buffer.remaining();
+		if (n <= remaining) {
+			buffer.position(buffer.position() + (int) n);
+			return;
+		}
+		if (in == null) {
+			throw new IOException("EOS on read");
+		}
+
+		n -= remaining;
+		buffer.clear();
+		try {
+			if (in instanceof SeekableByteChannel) {
+				final SeekableByteChannel channel = (SeekableByteChannel) in;
+				final long position = channel.position() + n;
+				if (position > channel.size()) {
+					throw new IOException("EOS on read");
+				}
+				channel.position(position);
+				return;
+			}
+
+			while (n > 0) {
+				buffer.clear();
+				if (n < buffer.capacity()) {
+					buffer.limit((int) n);
+				}
+				final int r = in.read(buffer);
+				if (r == -1) {
+					throw new IOException("EOS on read");
+				}
+				n -= r;
+			}
+		} finally {
+			buffer.clear();
+			buffer.limit(0);
+		}
+	}
+
+	/**
+	 * skip count of 7bit encoded ints.
+	 */
+	private void skipVInts(int count) throws IOException {
+		while (count > 0) {
+			readToBuffer(1);
+			final int limit = buffer.limit();
+			int p = buffer.position();
+			while (p < limit && count > 0) {
+				if (buffer.get(p++) >= 0) {
+					--count;
+				}
+			}
+			buffer.position(p);
+		}
+	}
+
+	/**
+	 * skip elements of primitive array.
+	 * 
+	 * @param type
+	 *            lower 3 bits of type byte
+	 */
+	private void skipElements(int type, int count) throws IOException {
+		switch (type) {
+		case 0: // boolean
+			skipBytes(count);
+			break;
+		case 1: // short
+		case 6: // char
+			skipBytes(count * 2L);
+			break;
+		case 2: // int
+		case 3: // long
+			skipVInts(count);
+			break;
+		case 4: // float
+			skipBytes(count * 4L);
+			break;
+		case 5: // double
+			skipBytes(count * 8L);
+			break;
+		default:
+			throw new IOException("SteakParser: NOT USED type byte 0x2f");
+		}
+	}
+
+	/**
+	 * skip a token without decoding. bytes of string, octet and elements of primitive array are skipped, and typed
+	 * value of custom type.
+	 * 
+	 * @return 1 on start of array or object, -1 on end of structure, 0 for others.
+	 */
+	private int skipToken() throws IOException {
+		final byte b = readByte();
+		if ((b & 0xc0) == 0) {
+			switch (b >> 3) {
+			case 1: // full bytes
+				skipBytes(FULL_BYTES[b & 0x07]);
+				break;
+			case 2: // variable bits
+				if ((b & 0x03) == 0x03) {
+					skipBytes(1);
+				} else {
+					skipVInts(1);
+				}
+				break;
+			case 3: // null boolean float
+				switch (b & 0x07) {
+				case 1:
+					skipBytes(4);
+					break;
+				case 3:
+					skipBytes(8);
+					break;
+				case 7:
+					return -1;
+				default:
+				}
+				break;
+			case 4: // date time char
+				switch (b & 0x07) {
+				case 2:
+					skipVInts(4);
+					break;
+				case 4:
+					skipBytes(1);
+					break;
+				case 5:
+					skipBytes(2);
+					break;
+				case 6:
+					skipVInts(1);
+					break;
+				case 7:
+					break;
+				default:
+					throw new IOException("SteakParser: cannot skip unsupported type byte " + b);
+				}
+				break;
+			case 5: // primitive array
+				if ((b & 0x07) == 0x07) {
+					checkReference();
+					final long value = readVLong();
+					if ((value & 0x03) == 2) {
+						// schema object
+						schema((int) (value >>> 2));
+						++structures;
+						return 1;
+					}
+					break;
+				}
+				final int count = readVInt();
+				skipElements(b & 0x07, count);
+				if (readByte() != 0x1f) {
+					throw new IOException("SteakParser: end of primitive array not matched");
+				}
+				break;
+			case 6: // decimal
+			case 7:
+				final int scale = b & 0x07;
+				if (b >> 3 == 6 ? scale == 7 : scale == 0) {
+					skipVInts(1);
+				}
+				skipBytes(readVInt());
+				break;
+			default: // zero
+			}
+			return 0;
+		}
+
+		if ((b & 0x80) == 0) {
+			// variable lengths
+			int len = b & 0x0f;
+			final boolean variable = len == 0x0f;
+			if (variable) {
+				len = readVInt();
+			}
+			switch ((b & 0x30) >> 4) {
+			case 0: // BigInteger
+				skipBytes(len);
+				return 0;
+			case 1: // CustomType, and the typed value
+				skipBytes(variable && len == 0 ? 0 : len + 1);
+				return skipToken();
+			default: // Array, Object
+				++structures;
+				return 1;
+			}
+		}
+
+		// octet or string
+		int len = b & 0x3f;
+		if (len == 0x3f) {
+			len = readVInt();
+			if (len == 0) {
+				skipChunks();
+				return 0;
+			}
+		}
+		if ((b & 0x40) == 0 || numberString(b, len) == null) {
+			skipBytes(len);
+		}
+		return 0;
+	}
+
 	@Override
 	public TBONToken currentToken() {
 		return currentToken;
@@ -544,13 +1681,61 @@ public class SteakParser implements TBONParser {
 		return charValue;
 	}
 
+	/**
+	 * read string of len bytes, cached if short enough.
+	 */
+	private String readShortString(int len) throws IOException {
+		if (len > buffer.capacity()) {
+			final byte[] b = new byte[len];
+			readFully(b, 0, len);
+			return new String(b, StandardCharsets.UTF_8);
+		}
+
+		final int offset = stage(len);
+		if (keyCache != null && len <= KeyCache.MAX_KEY_LENGTH) {
+			return keyCache.intern(stagedBytes, offset, len);
+		}
+		return decodeString(stagedBytes, offset, len);
+	}
+
 	@Override
 	public String readString() throws IOException {
-		return new String(readOctet(), StandardCharsets.UTF_8);
+		payloadPending = false;
+		if (stringValue != null) {
+			return stringValue;
+		}
+		if (inStream || elementCount > buffer.capacity()) {
+			return new String(readOctet(), StandardCharsets.UTF_8);
+		}
+
+		final int offset = stage(elementCount);
+		return decodeString(stagedBytes, offset, elementCount);
+	}
+
+	@Override
+	public String readKey() throws IOException {
+		payloadPending = false;
+		if (stringValue != null) {
+			return stringValue;
+		}
+		if (inStream) {
+			return readString();
+		}
+		return readShortString(elementCount);
 	}
 
 	@Override
 	public byte[] readOctet() throws IOException {
+		payloadPending = false;
+		if (stringValue != null) {
+			return stringValue.getBytes(StandardCharsets.UTF_8);
+		}
+		if (!inStream) {
+			final byte[] b = new byte[elementCount];
+			readFully(b, 0, elementCount);
+			return b;
+		}
+
 		int capa = elementCount;
 		if (capa == -1) {
 			capa = 4096;
@@ -562,21 +1747,192 @@ public class SteakParser implements TBONParser {
 	}
 
 	public void readOctet(OutputStream out) throws IOException {
+		payloadPending = false;
+		if (stringValue != null) {
+			out.write(stringValue.getBytes(StandardCharsets.UTF_8));
+			return;
+		}
 		if (inStream) {
 			int len = readVInt();
 			while (len > 0) {
-				readOnSharedBuffer(0, len);
-				out.write(sharedBuffer, 0, len);
+				copyTo(out, len);
 				len = readVInt();
 			}
 
 			inStream = false;
 		} else {
-			readOnSharedBuffer(0, elementCount);
-			out.write(sharedBuffer, 0, elementCount);
+			copyTo(out, elementCount);
 		}
 	};
 
+	/**
+	 * copy next len bytes to out by chunks of buffer, shared buffer is not grown for a large octet.
+	 */
+	private void copyTo(OutputStream out, int len) throws IOException {
+		while (len > 0) {
+			readToBuffer(Math.min(len, buffer.capacity()));
+			int n = Math.min(len, buffer.remaining());
+			if (buffer.hasArray()) {
+				final int position = buffer.position();
+				out.write(buffer.array(), buffer.arrayOffset() + position, n);
+				buffer.position(position + n);
+			} else {
+				n = Math.min(n, sharedBuffer.length);
+				buffer.get(sharedBuffer, 0, n);
+				out.write(sharedBuffer, 0, n);
+			}
+			len -= n;
+		}
+	}
+
+	private int remainingArray(TBONToken token) throws IOException {
+		if (arrayToken != token) {
+			throw new IOException("SteakParser: current token is not " + token);
+		}
+		return arrayRemaining;
+	}
+
+	@Override
+	public boolean[] readBooleanArray() throws IOException {
+		final boolean[] arr = new boolean[remainingArray(TBONToken.PrimitiveArrayOfBoolean)];
+		readArray(arr, 0, arr.length);
+		return arr;
+	}
+
+	@Override
+	public short[] readShortArray() throws IOException {
+		final short[] arr = new short[remainingArray(TBONToken.PrimitiveArrayOfShort)];
+		readArray(arr, 0, arr.length);
+		return arr;
+	}
+
+	@Override
+	public int[] readIntArray() throws IOException {
+		final int[] arr = new int[remainingArray(TBONToken.PrimitiveArrayOfInt)];
+		readArray(arr, 0, arr.length);
+		return arr;
+	}
+
+	@Override
+	public long[] readLongArray() throws IOException {
+		final long[] arr = new long[remainingArray(TBONToken.PrimitiveArrayOfLong)];
+		readArray(arr, 0, arr.length);
+		return arr;
+	}
+
+	@Override
+	public float[] readFloatArray() throws IOException {
+		final float[] arr = new float[remainingArray(TBONToken.PrimitiveArrayOfFloat)];
+		readArray(arr, 0, arr.length);
+		return arr;
+	}
+
+	@Override
+	public double[] readDoubleArray() throws IOException {
+		final double[] arr = new double[remainingArray(TBONToken.PrimitiveArrayOfDouble)];
+		readArray(arr, 0, arr.length);
+		return arr;
+	}
+
+	@Override
+	public char[] readCharArray() throws IOException {
+		final char[] arr = new char[remainingArray(TBONToken.PrimitiveArrayOfChar)];
+		readArray(arr, 0, arr.length);
+		return arr;
+	}
+
+	@Override
+	public int readArray(boolean[] dst, int offset, int length) throws IOException {
+		final int count = beginArrayRead(TBONToken.PrimitiveArrayOfBoolean, length);
+		for (int i = offset, end = offset + count; i < end; ++i) {
+			dst[i] = readBooleanElement();
+		}
+		return endArrayRead(count);
+	}
+
+	@Override
+	public int readArray(short[] dst, int offset, int length) throws IOException {
+		final int count = beginArrayRead(TBONToken.PrimitiveArrayOfShort, length);
+		for (int i = offset, end = offset + count; i < end;) {
+			readToBuffer(2);
+			final int n = Math.min(end - i, buffer.remaining() >> 1);
+			buffer.asShortBuffer().get(dst, i, n);
+			buffer.position(buffer.position() + (n << 1));
+			i += n;
+		}
+		return endArrayRead(count);
+	}
+
+	@Override
+	public int readArray(int[] dst, int offset, int length) throws IOException {
+		final int count = beginArrayRead(TBONToken.PrimitiveArrayOfInt, length);
+		for (int i = offset, end = offset + count; i < end; ++i) {
+			dst[i] = readVSInt();
+		}
+		return endArrayRead(count);
+	}
+
+	@Override
+	public int readArray(long[] dst, int offset, int length) throws IOException {
+		final int count = beginArrayRead(TBONToken.PrimitiveArrayOfLong, length);
+		for (int i = offset, end = offset + count; i < end; ++i) {
+			dst[i] = readVSLong();
+		}
+		return endArrayRead(count);
+	}
+
+	@Override
+	public int readArray(float[] dst, int offset, int length) throws IOException {
+		final int count = beginArrayRead(TBONToken.PrimitiveArrayOfFloat, length);
+		for (int i = offset, end = offset + count; i < end;) {
+			readToBuffer(4);
+			final int n = Math.min(end - i, buffer.remaining() >> 2);
+			buffer.asFloatBuffer().get(dst, i, n);
+			buffer.position(buffer.position() + (n << 2));
+			i += n;
+		}
+		return endArrayRead(count);
+	}
+
+	@Override
+	public int readArray(double[] dst, int offset, int length) throws IOException {
+		final int count = beginArrayRead(TBONToken.PrimitiveArrayOfDouble, length);
+		for (int i = offset, end = offset + count; i < end;) {
+			readToBuffer(8);
+			final int n = Math.min(end - i, buffer.remaining() >> 3);
+			buffer.asDoubleBuffer().get(dst, i, n);
+			buffer.position(buffer.position() + (n << 3));
+			i += n;
+		}
+		return endArrayRead(count);
+	}
+
+	@Override
+	public int readArray(char[] dst, int offset, int length) throws IOException {
+		final int count = beginArrayRead(TBONToken.PrimitiveArrayOfChar, length);
+		for (int i = offset, end = offset + count; i < end;) {
+			readToBuffer(2);
+			final int n = Math.min(end - i, buffer.remaining() >> 1);
+			buffer.asCharBuffer().get(dst, i, n);
+			buffer.position(buffer.position() + (n << 1));
+			i += n;
+		}
+		return endArrayRead(count);
+	}
+
+	@Override
+	public ByteBuffer readOctetBuffer() throws IOException {
+		payloadPending = false;
+		if (in == null && !inStream && stringValue == null) {
+			readToBuffer(elementCount);
+			final ByteBuffer slice = buffer.slice();
+			slice.limit(elementCount);
+			buffer.position(buffer.position() + elementCount);
+			return slice;
+		}
+		return ByteBuffer.wrap(readOctet());
+	}
+
 	@Override
 	public int getElementCount() {
 		return elementCount;
@@ -586,4 +1942,42 @@ public class SteakParser implements TBONParser {
 	public String getCustomTypeName() {
 		return (String) objectValue;
 	}
+
+	@Override
+	public int getReferenceId() {
+		switch (currentToken) {
+		case Array:
+		case Object:
+		case Reference:
+			return referenceId;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * only parser on a channel can be reset.
+	 */
+	@Override
+	public void reset(ReadableByteChannel in) throws IOException {
+		if (this.in == null) {
+			throw new IOException("SteakParser: not a parser on a channel");
+		}
+
+		this.in = in;
+		buffer.clear();
+		buffer.limit(0);
+		currentToken = TBONToken.NotAvailable;
+		elementCount = -1;
+		arrayToken = null;
+		arrayRemaining = 0;
+		endedArrayToken = null;
+		inStream = false;
+		payloadPending = false;
+		objectValue = null;
+		stringValue = null;
+		referenceId = -1;
+
+		checkHeader();
+	}
 }
@@ -0,0 +1,324 @@
+package kr.inode.tbon.mapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.steak.SteakFactory;
+
+public class TBONMapperTest {
+	@Test
+	public void testSharedMapper() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(), 2);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < 8; ++t) {
+				final int thread = t;
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						for (int i = 0; i < 500; ++i) {
+							Map<String, Object> map = new LinkedHashMap<>();
+							map.put("thread", thread);
+							map.put("seq", i);
+							map.put("text", "text-" + thread + "-" + i);
+							map.put("values", new double[] { thread, i });
+
+							ByteArrayOutputStream out = new ByteArrayOutputStream();
+							mapper.writeTo(out, map);
+							Map<String, Object> value = mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+							Assertions.assertEquals(map.get("text"), value.get("text"));
+							Assertions.assertArrayEquals((double[]) map.get("values"), (double[]) value.get("values"));
+						}
+						return thread;
+					}
+				}));
+			}
+			for (int t = 0; t < 8; ++t) {
+				Assertions.assertEquals(t, results.get(t).get().intValue());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReuseAfterError() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(), 1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, "value");
+		final byte[] bytes = out.toByteArray();
+
+		// truncated input leaves pooled parser in the middle of a value
+		Assertions.assertThrows(IOException.class,
+				() -> mapper.readFrom(new ByteArrayInputStream(bytes, 0, bytes.length - 2)));
+		Assertions.assertEquals("value", mapper.readFrom(new ByteArrayInputStream(bytes)));
+	}
+
+	public static class Point {
+		public int x;
+		public int y;
+	}
+
+	@Test
+	public void testRegisterAfterWrite() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(), 1);
+		final Point point = new Point();
+		point.x = 1;
+		point.y = 2;
+
+		// built-in POJO writer is resolved and cached for Point
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, point);
+		Point read = (Point) mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		Assertions.assertEquals(2, read.y);
+
+		mapper.typeHandlerRegistry().register(new TypeWriter() {
+			@Override
+			public boolean canWrite(Object obj) {
+				return obj instanceof Point;
+			}
+
+			@Override
+			public void write(TBONWriter writer, Object obj) throws IOException {
+				writer.generator().write(((Point) obj).x + "," + ((Point) obj).y);
+			}
+		});
+
+		out = new ByteArrayOutputStream();
+		mapper.writeTo(out, point);
+		Assertions.assertEquals("1,2", mapper.readFrom(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+	@Test
+	public void testCyclePolicy() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(), 1);
+		final List<Object> list = new ArrayList<>();
+		list.add("a");
+		list.add(new ArrayList<>(list));
+		list.add(list);
+
+		// equal but not same value is written
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, list);
+		List<?> read = mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		Assertions.assertEquals(3, read.size());
+		Assertions.assertEquals(List.of("a"), read.get(1));
+		Assertions.assertNull(read.get(2));
+
+		mapper.setCyclePolicy(CyclePolicy.FAIL);
+		Assertions.assertThrows(IOException.class, () -> mapper.writeTo(new ByteArrayOutputStream(), list));
+
+		mapper.setCyclePolicy(CyclePolicy.IGNORE);
+		mapper.setMaxDepth(16);
+		Assertions.assertThrows(IOException.class, () -> mapper.writeTo(new ByteArrayOutputStream(), list));
+
+		list.remove(2);
+		out = new ByteArrayOutputStream();
+		mapper.writeTo(out, list);
+		read = mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		Assertions.assertEquals(list, read);
+	}
+
+	@Test
+	public void testReferencePolicy() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, true), 1);
+		mapper.setCyclePolicy(CyclePolicy.REFERENCE);
+
+		final Map<String, Object> shared = new LinkedHashMap<>();
+		shared.put("name", "shared-value");
+		final Point point = new Point();
+		point.x = 3;
+		final List<Object> list = new ArrayList<>();
+		list.add(shared);
+		list.add(shared);
+		list.add(point);
+		list.add(point);
+		list.add(list);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, list);
+		List<?> read = mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		Assertions.assertEquals(5, read.size());
+		Assertions.assertEquals(shared, read.get(0));
+		Assertions.assertSame(read.get(0), read.get(1));
+		Assertions.assertEquals(3, ((Point) read.get(2)).x);
+		Assertions.assertSame(read.get(2), read.get(3));
+		Assertions.assertSame(read, read.get(4));
+
+		// generator without references
+		final TBONMapper plain = new TBONMapper(new SteakFactory(), 1);
+		plain.setCyclePolicy(CyclePolicy.REFERENCE);
+		Assertions.assertThrows(IOException.class, () -> plain.writeTo(new ByteArrayOutputStream(), list));
+	}
+
+	public static class Blob {
+		public byte[] bytes;
+		public ByteBuffer buffer;
+		public InputStream stream;
+	}
+
+	@Test
+	public void testOctetPolicy() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(), 1);
+		final byte[] large = new byte[100000];
+		for (int i = 0; i < large.length; ++i) {
+			large[i] = (byte) i;
+		}
+		final Map<String, Object> map = new LinkedHashMap<>();
+		map.put("small", new byte[] { 1, 2, 3 });
+		map.put("large", large);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, map);
+		final byte[] bytes = out.toByteArray();
+
+		// file by default
+		Map<?, ?> read = mapper.readFrom(new ByteArrayInputStream(bytes));
+		Assertions.assertTrue(read.get("small") instanceof byte[]);
+		final File file = (File) read.get("large");
+		try {
+			Assertions.assertArrayEquals(large, Files.readAllBytes(file.toPath()));
+		} finally {
+			Files.delete(file.toPath());
+		}
+		Assertions.assertEquals(large.length, mapper.getSpilledBytes());
+
+		mapper.setOctetPolicy(OctetPolicy.MAPPED);
+		read = mapper.readFrom(new ByteArrayInputStream(bytes));
+		Assertions.assertTrue(read.get("large") instanceof MappedByteBuffer);
+		Assertions.assertEquals(ByteBuffer.wrap(large), read.get("large"));
+		Assertions.assertEquals(large.length * 2, mapper.getSpilledBytes());
+
+		mapper.setOctetPolicy(OctetPolicy.BUFFER);
+		read = mapper.readFrom(ByteBuffer.wrap(bytes));
+		// slice of input
+		Assertions.assertSame(bytes, ((ByteBuffer) read.get("large")).array());
+
+		mapper.setOctetPolicy(OctetPolicy.BYTES);
+		mapper.setOctetThreshold(0);
+		read = mapper.readFrom(new ByteArrayInputStream(bytes));
+		Assertions.assertArrayEquals(large, (byte[]) read.get("large"));
+
+		// POJO properties take any of large octets
+		final Blob blob = new Blob();
+		blob.bytes = large;
+		blob.buffer = ByteBuffer.wrap(large);
+		blob.stream = new ByteArrayInputStream(large);
+		out = new ByteArrayOutputStream();
+		mapper.writeTo(out, blob);
+		mapper.setOctetPolicy(OctetPolicy.MAPPED);
+		final Blob readBlob = mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		Assertions.assertArrayEquals(large, readBlob.bytes);
+		Assertions.assertEquals(ByteBuffer.wrap(large), readBlob.buffer);
+		final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		final byte[] b = new byte[4096];
+		for (int n; (n = readBlob.stream.read(b)) != -1;) {
+			streamed.write(b, 0, n);
+		}
+		Assertions.assertArrayEquals(large, streamed.toByteArray());
+	}
+
+	@Test
+	public void testReadArrayParallel() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(), 1);
+		final List<Object> records = new ArrayList<>();
+		for (int i = 0; i < 10000; ++i) {
+			final Point point = new Point();
+			point.x = i;
+			point.y = -i;
+			records.add(i % 2 == 0 ? point : "record-" + i);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, records);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final List<Object> read = mapper.readArrayParallel(ByteBuffer.wrap(out.toByteArray()), pool);
+			Assertions.assertEquals(records.size(), read.size());
+			for (int i = 0; i < records.size(); ++i) {
+				if (i % 2 == 0) {
+					Assertions.assertEquals(i, ((Point) read.get(i)).x);
+					Assertions.assertEquals(-i, ((Point) read.get(i)).y);
+				} else {
+					Assertions.assertEquals(records.get(i), read.get(i));
+				}
+			}
+
+			// empty array, and top level not an array
+			out = new ByteArrayOutputStream();
+			mapper.writeTo(out, new ArrayList<>());
+			Assertions.assertTrue(mapper.readArrayParallel(ByteBuffer.wrap(out.toByteArray()), pool).isEmpty());
+			out = new ByteArrayOutputStream();
+			mapper.writeTo(out, "value");
+			final byte[] bytes = out.toByteArray();
+			Assertions.assertThrows(IOException.class, () -> mapper.readArrayParallel(ByteBuffer.wrap(bytes), pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testWriteArrayParallel() throws Exception {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(), 1);
+		final List<Object> records = new ArrayList<>();
+		for (int i = 0; i < 10000; ++i) {
+			final Point point = new Point();
+			point.x = i;
+			point.y = -i;
+			records.add(i % 3 == 0 ? "record-" + i : point);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, records);
+		final byte[] expected = out.toByteArray();
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			out = new ByteArrayOutputStream();
+			mapper.writeArrayParallel(out, records, pool);
+			Assertions.assertArrayEquals(expected, out.toByteArray());
+
+			// gathering write of fragments
+			final Path file = Files.createTempFile("tbon", ".tbon");
+			try {
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+					mapper.writeArrayParallel(channel, records, pool);
+				}
+				Assertions.assertArrayEquals(expected, Files.readAllBytes(file));
+			} finally {
+				Files.delete(file);
+			}
+
+			out = new ByteArrayOutputStream();
+			mapper.writeArrayParallel(out, new ArrayList<>(), pool);
+			Assertions.assertEquals(0, ((List<?>) mapper.readFrom(new ByteArrayInputStream(out.toByteArray()))).size());
+
+			// fragments are not numbered for references
+			final TBONMapper referred = new TBONMapper(new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, true), 1);
+			Assertions.assertThrows(IOException.class,
+					() -> referred.writeArrayParallel(new ByteArrayOutputStream(), records, pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -2,6 +2,7 @@ package kr.inode.tbon.mapper;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.junit.jupiter.api.Assertions;
@@ -78,4 +79,20 @@ public class TypeHandlerRegistryTest {
 		Assertions.assertEquals(CharSequence.class, entry.getKey());
 	}
 
+	@Test
+	public void testSnapshot() {
+		TBONMapper mapper = new TBONMapper();
+		TypeHandlerRegistry registry = mapper.typeHandlerRegistry();
+		registry.register(new CharSequenceHandler());
+
+		Map<Class<?>, TypeWriter> before = registry.explicitTypeWriterMap();
+		Assertions.assertSame(before, registry.explicitTypeWriterMap());
+
+		registry.register(new StringHandler());
+		Assertions.assertEquals(1, before.size());
+		Assertions.assertEquals(2, registry.explicitTypeWriterMap().size());
+		Assertions.assertEquals(2, registry.typeReaders().size());
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> registry.typeWriters().clear());
+	}
+
 }
@@ -0,0 +1,69 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONToken;
+import kr.inode.tbon.mapper.TBONMapper;
+
+public class SteakByteBufferTest {
+	@Test
+	public void testReadFromBuffer() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("string", "가나다라마바사".repeat(100));
+			map.put("octet", new byte[] { 1, 2, 3 });
+			map.put("doubles", new double[] { 1.0, 2.0 });
+			map.put("number", 12345L);
+			mapper.writeTo(out, map);
+
+			byte[] array = out.toByteArray();
+			Map<String, Object> value = mapper.readFrom(ByteBuffer.wrap(array));
+			Assertions.assertEquals(map.get("string"), value.get("string"));
+			Assertions.assertArrayEquals((byte[]) map.get("octet"), (byte[]) value.get("octet"));
+			Assertions.assertArrayEquals((double[]) map.get("doubles"), (double[]) value.get("doubles"));
+			Assertions.assertEquals(map.get("number"), value.get("number"));
+
+			ByteBuffer direct = ByteBuffer.allocateDirect(array.length);
+			direct.put(array).flip();
+			value = mapper.readFrom(direct);
+			Assertions.assertEquals(map.get("string"), value.get("string"));
+			Assertions.assertEquals(0, direct.position());
+		}
+	}
+
+	@Test
+	public void testOctetSlice() throws IOException {
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+				generator.writeStartArray(2);
+				generator.write("ABC".getBytes(StandardCharsets.UTF_8));
+				generator.write("DEF");
+				generator.writeEndArray();
+			}
+
+			byte[] array = out.toByteArray();
+			try (SteakParser parser = new SteakParser(ByteBuffer.wrap(array))) {
+				Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+				Assertions.assertEquals(TBONToken.Octet, parser.nextToken());
+				ByteBuffer octet = parser.readOctetBuffer();
+				Assertions.assertSame(array, octet.array());
+				Assertions.assertEquals(ByteBuffer.wrap("ABC".getBytes(StandardCharsets.UTF_8)), octet);
+				Assertions.assertEquals(TBONToken.String, parser.nextToken());
+				Assertions.assertEquals("DEF", parser.readString());
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+				Assertions.assertFalse(parser.next());
+				Assertions.assertEquals(TBONToken.NotAvailable, parser.currentToken());
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONToken;
+
+public class SteakChannelTest {
+	/**
+	 * gathering channel on a stream, counts writes.
+	 */
+	private static final class CountingChannel implements GatheringByteChannel {
+		private final WritableByteChannel out;
+		int writes;
+
+		CountingChannel(ByteArrayOutputStream out) {
+			this.out = Channels.newChannel(out);
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			++writes;
+			return out.write(src);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			++writes;
+			long n = 0L;
+			for (int i = offset; i < offset + length; ++i) {
+				while (srcs[i].hasRemaining()) {
+					n += out.write(srcs[i]);
+				}
+			}
+			return n;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs) throws IOException {
+			return write(srcs, 0, srcs.length);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static byte[] random(int size) {
+		final byte[] b = new byte[size];
+		new Random(size).nextBytes(b);
+		return b;
+	}
+
+	@Test
+	public void testGatheringWrite() throws IOException {
+		final byte[] large = random(100000);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final CountingChannel channel = new CountingChannel(out);
+		try (SteakGenerator generator = new SteakGenerator(channel)) {
+			generator.writeStartArray(2);
+			generator.write("before");
+			// buffered bytes and header of octet are written with payload
+			generator.write(large);
+			Assertions.assertEquals(1, channel.writes);
+			generator.writeEndArray();
+		}
+
+		final SteakParser parser = new SteakParser(ByteBuffer.wrap(out.toByteArray()));
+		Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+		parser.next();
+		Assertions.assertEquals("before", parser.readString());
+		Assertions.assertEquals(TBONToken.Octet, parser.nextToken());
+		Assertions.assertArrayEquals(large, parser.readOctet());
+		Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+	}
+
+	@Test
+	public void testFileTransfer() throws IOException {
+		final byte[] content = random(3 * 1024 * 1024 + 7);
+		final Path source = Files.createTempFile("tbon", ".bin");
+		final Path target = Files.createTempFile("tbon", ".tbon");
+		try {
+			Files.write(source, content);
+			try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+					FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+				try (SteakGenerator generator = new SteakGenerator(out)) {
+					generator.writeStartArray(2);
+					// stream of unknown length, chunks by transfer
+					generator.write(in);
+					Assertions.assertEquals(content.length, in.position());
+					in.position(10);
+					generator.write(in, 1000);
+					Assertions.assertEquals(1010, in.position());
+					generator.writeEndArray();
+				}
+			}
+
+			final SteakParser parser = new SteakParser(ByteBuffer.wrap(Files.readAllBytes(target)));
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			Assertions.assertEquals(TBONToken.Octet, parser.nextToken());
+			Assertions.assertArrayEquals(content, parser.readOctet());
+			Assertions.assertEquals(TBONToken.Octet, parser.nextToken());
+			final byte[] part = new byte[1000];
+			System.arraycopy(content, 10, part, 0, part.length);
+			Assertions.assertArrayEquals(part, parser.readOctet());
+			Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		} finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
+
+	@Test
+	public void testStreamChunks() throws IOException {
+		final byte[] content = random(50000);
+		// reads of various sizes, both 1 and 2 bytes chunk lengths
+		final ReadableByteChannel in = new ReadableByteChannel() {
+			private int position;
+			private int turn;
+
+			@Override
+			public int read(ByteBuffer dst) {
+				if (position == content.length) {
+					return -1;
+				}
+				final int size = ++turn % 3 == 0 ? 100 : 3000;
+				final int n = Math.min(Math.min(dst.remaining(), content.length - position), size);
+				dst.put(content, position, n);
+				position += n;
+				return n;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+			generator.write(in);
+			generator.write("after");
+		}
+
+		final SteakParser parser = new SteakParser(ByteBuffer.wrap(out.toByteArray()));
+		Assertions.assertEquals(TBONToken.Octet, parser.nextToken());
+		Assertions.assertArrayEquals(content, parser.readOctet());
+		parser.next();
+		Assertions.assertEquals("after", parser.readString());
+	}
+}
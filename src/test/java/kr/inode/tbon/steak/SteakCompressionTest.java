@@ -0,0 +1,142 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONGenerator;
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+
+public class SteakCompressionTest {
+	private static final int COUNT = 5000;
+
+	private static byte[] noise() {
+		final byte[] b = new byte[200000];
+		new Random(7).nextBytes(b);
+		return b;
+	}
+
+	private static byte[] records(SteakFactory factory) throws IOException {
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (TBONGenerator generator = factory.createGenerator(out)) {
+				generator.writeStartArray(COUNT + 1);
+				for (int i = 0; i < COUNT; ++i) {
+					generator.writeStartObject(2);
+					generator.write("host");
+					generator.write("host-" + i % 4 + ".example.com");
+					generator.write("id");
+					generator.write(i);
+					generator.writeEndObject();
+				}
+				// incompressible bytes are stored
+				generator.write(noise());
+				generator.writeEndArray();
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static void check(TBONParser parser) throws IOException {
+		Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+		for (int i = 0; i < COUNT; ++i) {
+			Assertions.assertEquals(TBONToken.Object, parser.nextToken());
+			if (i % 3 == 0) {
+				parser.skipChildren();
+				continue;
+			}
+			parser.next();
+			Assertions.assertEquals("host", parser.readKey());
+			parser.next();
+			Assertions.assertEquals("host-" + i % 4 + ".example.com", parser.readString());
+			parser.next();
+			Assertions.assertEquals("id", parser.readKey());
+			parser.next();
+			Assertions.assertEquals(i, parser.getInt());
+			Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		}
+		Assertions.assertEquals(TBONToken.Octet, parser.nextToken());
+		Assertions.assertArrayEquals(noise(), parser.readOctet());
+		Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		Assertions.assertFalse(parser.next());
+	}
+
+	@Test
+	public void testCompression() throws IOException {
+		final byte[] plain = records(new SteakFactory());
+		for (final SteakCompression compression : SteakCompression.values()) {
+			final SteakFactory factory = new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, false, false,
+					compression);
+			final byte[] compressed = records(factory);
+			Assertions.assertEquals(SteakFactory.HEADER_COMPRESSED, compressed[4]);
+			Assertions.assertEquals(compression.id(), compressed[5]);
+			Assertions.assertTrue(compressed.length - noise().length < (plain.length - noise().length) / 4,
+					compression + ": " + compressed.length + " / " + plain.length);
+
+			try (TBONParser parser = factory.createParser(new ByteArrayInputStream(compressed))) {
+				check(parser);
+			}
+			try (TBONParser parser = factory.createParser(ByteBuffer.wrap(compressed))) {
+				check(parser);
+			}
+		}
+	}
+
+	@Test
+	public void testFlushAndReset() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final SteakGenerator generator = new SteakGenerator(Channels.newChannel(out), false, true, false,
+				SteakCompression.LZ);
+		generator.write("record-1");
+		generator.flush();
+		final int flushed = out.size();
+		Assertions.assertTrue(flushed > 6);
+		generator.write("record-2");
+		generator.close();
+
+		final ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+		generator.reset(Channels.newChannel(out2));
+		generator.close();
+		// empty compressed stream is header only
+		Assertions.assertEquals(6, out2.size());
+
+		final SteakParser parser = new SteakParser(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+		parser.next();
+		Assertions.assertEquals("record-1", parser.readString());
+		parser.next();
+		Assertions.assertEquals("record-2", parser.readString());
+		Assertions.assertFalse(parser.next());
+
+		parser.reset(Channels.newChannel(new ByteArrayInputStream(out2.toByteArray())));
+		Assertions.assertFalse(parser.next());
+	}
+
+	@Test
+	public void testBrokenBlock() throws IOException {
+		final byte[] compressed = records(
+				new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, false, false, SteakCompression.LZ));
+		final byte[] truncated = Arrays.copyOf(compressed, compressed.length - 100);
+		Assertions.assertThrows(IOException.class, () -> {
+			try (TBONParser parser = new SteakFactory().createParser(ByteBuffer.wrap(truncated))) {
+				while (parser.skipValue()) {
+				}
+			}
+		});
+
+		// length of first block over block size
+		compressed[8] = 0x7f;
+		Assertions.assertThrows(IOException.class,
+				() -> new SteakFactory().createParser(ByteBuffer.wrap(compressed)).next());
+
+		final SteakParser nonBlocking = new SteakParser();
+		nonBlocking.feed(ByteBuffer.wrap(compressed));
+		Assertions.assertThrows(IOException.class, nonBlocking::next);
+	}
+}
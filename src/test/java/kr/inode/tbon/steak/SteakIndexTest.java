@@ -0,0 +1,128 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.mapper.TBONMapper;
+import kr.inode.tbon.mapper.TBONReader;
+import kr.inode.tbon.mapper.TBONWriter;
+
+public class SteakIndexTest {
+	private static Object element(int i) {
+		switch (i % 4) {
+		case 0:
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("seq", i);
+			map.put("values", new int[] { i, i + 1 });
+			return map;
+		case 1:
+			return "element-" + i;
+		case 2:
+			SteakPOJOTest.P p = new SteakPOJOTest.P();
+			p.setB("p" + i);
+			return p;
+		default:
+			return (long) i << 33;
+		}
+	}
+
+	private static byte[] write(Object value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (TBONWriter writer = new TBONWriter(new SteakGenerator(Channels.newChannel(out), true))) {
+			writer.writeObject(value);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testArrayIndex() throws IOException {
+		List<Object> list = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i) {
+			list.add(element(i));
+		}
+		byte[] bytes = write(list);
+
+		SteakIndex index = new SteakIndex(ByteBuffer.wrap(bytes));
+		Assertions.assertEquals(1000, index.size());
+		Assertions.assertFalse(index.isObject());
+		for (int i : new int[] { 0, 1, 2, 3, 500, 999 }) {
+			Object value = new TBONReader(index.parser(i)).nextValue();
+			if (i % 4 == 2) {
+				Assertions.assertEquals("p" + i, ((SteakPOJOTest.P) value).getB());
+			} else if (i % 4 == 0) {
+				Assertions.assertEquals(i, ((Map<?, ?>) value).get("seq"));
+			} else {
+				Assertions.assertEquals(element(i), value);
+			}
+		}
+
+		// document is still readable without index
+		List<Object> value = new TBONMapper(new SteakFactory()).readFrom(ByteBuffer.wrap(bytes));
+		Assertions.assertEquals(1000, value.size());
+		Assertions.assertEquals("element-997", value.get(997));
+	}
+
+	@Test
+	public void testObjectIndexOnFile() throws IOException {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (int i = 0; i < 100; ++i) {
+			map.put("key" + i, element(i));
+		}
+		Path file = Files.createTempFile("tbon", ".tbon");
+		try {
+			Files.write(file, write(map));
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				SteakIndex index = new SteakIndex(channel);
+				Assertions.assertTrue(index.isObject());
+				Assertions.assertEquals(100, index.size());
+				Assertions.assertEquals("key42", index.key(42));
+				Assertions.assertEquals(41, index.indexOf("key41"));
+				Assertions.assertEquals("element-41", new TBONReader(index.parser("key41")).nextValue());
+				Assertions.assertEquals(map.get("key99"), new TBONReader(index.parser("key99")).nextValue());
+				Assertions.assertNull(index.parser("nothing"));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testOneTopLevelValue() throws IOException {
+		// custom type and its value are one value
+		SteakPOJOTest.P p = new SteakPOJOTest.P();
+		p.setB("typed");
+		Assertions.assertEquals(1, new SteakIndex(ByteBuffer.wrap(write(p))).size());
+
+		// index follows one top level value, output is not a record stream
+		try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(new ByteArrayOutputStream()), true)) {
+			generator.writeStartArray(1);
+			generator.write("element");
+			generator.writeEndArray();
+			Assertions.assertThrows(IOException.class, () -> generator.write("record"));
+		}
+		try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(new ByteArrayOutputStream()), true)) {
+			generator.write("scalar");
+			Assertions.assertThrows(IOException.class, () -> generator.writeStartArray(0));
+		}
+	}
+
+	@Test
+	public void testNoIndex() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new TBONMapper(new SteakFactory()).writeTo(out, "value");
+		Assertions.assertThrows(IOException.class, () -> new SteakIndex(ByteBuffer.wrap(out.toByteArray())));
+	}
+}
@@ -0,0 +1,107 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONToken;
+import kr.inode.tbon.mapper.TBONMapper;
+
+public class SteakNodeTest {
+	public static class Item {
+		public String name;
+		public int count;
+	}
+
+	private static byte[] document(TBONMapper mapper) throws IOException {
+		final Map<String, Object> map = new LinkedHashMap<>();
+		map.put("id", 7L);
+		map.put("price", new BigDecimal("12.50"));
+		final List<Object> items = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i) {
+			final Map<String, Object> item = new LinkedHashMap<>();
+			item.put("name", "item-" + i);
+			item.put("tags", new int[] { i, i + 1 });
+			items.add(item);
+		}
+		map.put("items", items);
+		final Item pojo = new Item();
+		pojo.name = "pojo";
+		pojo.count = 3;
+		map.put("pojo", pojo);
+		map.put("octet", new byte[] { 1, 2, 3 });
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, map);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testLazyAccess() throws IOException {
+		final TBONMapper mapper = new TBONMapper();
+		final byte[] bytes = document(mapper);
+		final SteakNode root = new SteakNode(ByteBuffer.wrap(bytes));
+
+		Assertions.assertTrue(root.isObject());
+		Assertions.assertEquals(5, root.size());
+		Assertions.assertEquals("items", root.key(2));
+		Assertions.assertEquals(7L, ((Number) root.get("id").value()).longValue());
+		Assertions.assertEquals(new BigDecimal("12.50"), root.get("price").value());
+		Assertions.assertNull(root.get("missing"));
+
+		final SteakNode items = root.get("items");
+		Assertions.assertEquals(TBONToken.Array, items.token());
+		Assertions.assertEquals(1000, items.size());
+		final SteakNode item = items.get(500);
+		Assertions.assertSame(item, items.get(500));
+		Assertions.assertEquals("item-500", item.get("name").value());
+		Assertions.assertArrayEquals(new int[] { 500, 501 }, (int[]) item.get("tags").value());
+		Assertions.assertThrows(IllegalStateException.class, item::value);
+
+		// octet is a slice of source
+		final ByteBuffer octet = (ByteBuffer) root.get("octet").value();
+		Assertions.assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), octet);
+		Assertions.assertTrue(octet.isReadOnly());
+
+		// subtree by mapper, including custom types
+		final Item pojo = mapper.readFrom(root.get("pojo"));
+		Assertions.assertEquals("pojo", pojo.name);
+		Assertions.assertEquals(3, pojo.count);
+		final Map<?, ?> read = mapper.readFrom(items.get(3));
+		Assertions.assertEquals("item-3", read.get("name"));
+	}
+
+	@Test
+	public void testMappedFile() throws IOException {
+		final TBONMapper mapper = new TBONMapper();
+		final Path file = Files.createTempFile("tbon", ".tbon");
+		try {
+			Files.write(file, document(mapper));
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				final SteakNode root = new SteakNode(channel);
+				Assertions.assertEquals("item-999", root.get("items").get(999).get("name").value());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testUnsupportedInput() throws IOException {
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, true), 1);
+		final byte[] bytes = document(mapper);
+		Assertions.assertThrows(IOException.class, () -> new SteakNode(ByteBuffer.wrap(bytes)));
+	}
+}
@@ -0,0 +1,210 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+import kr.inode.tbon.mapper.TBONMapper;
+
+public class SteakNonBlockingTest {
+	private static byte[] sample() throws IOException {
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+				generator.writeStartObject();
+				generator.write("numbers");
+				generator.writeStartArray();
+				generator.write((byte) -3);
+				generator.write((short) 300);
+				generator.write(-123456);
+				generator.write(Long.MAX_VALUE);
+				generator.write(new BigInteger("123456789012345678901234567890"));
+				generator.write(new BigDecimal("-1234.5678"));
+				generator.write(1.5f);
+				generator.write(2.5d);
+				generator.write('가');
+				generator.writeEndArray();
+				generator.write("ints");
+				generator.write(new int[] { 1, -1, 1 << 20, Integer.MIN_VALUE });
+				generator.write("text");
+				generator.write("가나다라마바사".repeat(20));
+				generator.write("stream");
+				generator.write(Channels.newChannel(new ByteArrayInputStream(new byte[10000])));
+				generator.write("pojo");
+				generator.writeCustomType("kr.inode.Sample");
+				generator.writeStartObject(1);
+				generator.write("flag");
+				generator.write(true);
+				generator.writeEndObject();
+				generator.writeEndObject();
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static String describe(TBONParser parser) throws IOException {
+		final TBONToken token = parser.currentToken();
+		switch (token) {
+		case Int8:
+			return token + " " + parser.getByte();
+		case Int16:
+			return token + " " + parser.getShort();
+		case Int32:
+			return token + " " + parser.getInt();
+		case Int64:
+			return token + " " + parser.getLong();
+		case Float32:
+			return token + " " + parser.getFloat();
+		case Float64:
+			return token + " " + parser.getDouble();
+		case Character:
+			return token + " " + parser.getChar();
+		case Integer:
+			return token + " " + parser.getInteger();
+		case Decimal:
+			return token + " " + parser.getDecimal();
+		case CustomType:
+			return token + " " + parser.getCustomTypeName();
+		case String:
+			return token + " " + parser.readString();
+		case Octet:
+			return token + " " + Arrays.hashCode(parser.readOctet());
+		default:
+			return token.toString();
+		}
+	}
+
+	@Test
+	public void testFeedByteByByte() throws IOException {
+		final byte[] bytes = sample();
+
+		final List<String> expected = new ArrayList<>();
+		try (SteakParser parser = new SteakParser(ByteBuffer.wrap(bytes))) {
+			int depth = 0;
+			do {
+				parser.next();
+				expected.add(describe(parser));
+				switch (parser.currentToken()) {
+				case Array:
+				case Object:
+				case PrimitiveArrayOfInt:
+					++depth;
+					break;
+				case EndOfStructure:
+					--depth;
+					break;
+				default:
+				}
+			} while (depth > 0);
+		}
+
+		final List<String> actual = new ArrayList<>();
+		try (SteakParser parser = new SteakParser()) {
+			int fed = 0;
+			while (actual.size() < expected.size()) {
+				if (parser.next()) {
+					actual.add(describe(parser));
+				} else {
+					Assertions.assertEquals(TBONToken.NeedMoreInput, parser.currentToken());
+					parser.feed(ByteBuffer.wrap(bytes, fed++, 1));
+				}
+			}
+			Assertions.assertEquals(bytes.length, fed);
+			Assertions.assertFalse(parser.next());
+		}
+		Assertions.assertEquals(expected, actual);
+	}
+
+	/**
+	 * completes on caller thread, writes at most 1000 bytes at a time.
+	 */
+	private static class MemoryChannel implements AsynchronousByteChannel {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public <A> void read(ByteBuffer dst, A attachment, CompletionHandler<Integer, ? super A> handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Future<Integer> read(ByteBuffer dst) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public <A> void write(ByteBuffer src, A attachment, CompletionHandler<Integer, ? super A> handler) {
+			final byte[] b = new byte[Math.min(1000, src.remaining())];
+			src.get(b);
+			out.write(b, 0, b.length);
+			handler.completed(b.length, attachment);
+		}
+
+		@Override
+		public Future<Integer> write(ByteBuffer src) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Test
+	public void testAsyncGenerator() throws Exception {
+		final MemoryChannel channel = new MemoryChannel();
+		final Map<String, Object> map = new LinkedHashMap<>();
+		map.put("text", "가나다라마바사".repeat(2000));
+		map.put("octet", new byte[30000]);
+
+		final CompletableFuture<Long> written = new CompletableFuture<>();
+		try (SteakGenerator generator = new SteakFactory().createGenerator(channel)) {
+			generator.writeStartObject(map.size());
+			generator.write("text");
+			generator.write((String) map.get("text"));
+			Assertions.assertEquals(0, channel.out.size());
+			generator.write("octet");
+			generator.write((byte[]) map.get("octet"));
+			generator.writeEndObject();
+			generator.flush(null, new CompletionHandler<Long, Void>() {
+				@Override
+				public void completed(Long result, Void attachment) {
+					written.complete(result);
+				}
+
+				@Override
+				public void failed(Throwable exc, Void attachment) {
+					written.completeExceptionally(exc);
+				}
+			});
+		}
+
+		final byte[] bytes = channel.out.toByteArray();
+		Assertions.assertEquals(bytes.length, written.get().longValue());
+
+		final Map<String, Object> value = new TBONMapper(new SteakFactory()).readFrom(ByteBuffer.wrap(bytes));
+		Assertions.assertEquals(map.get("text"), value.get("text"));
+		Assertions.assertArrayEquals((byte[]) map.get("octet"), (byte[]) value.get("octet"));
+	}
+}
@@ -3,17 +3,33 @@ package kr.inode.tbon.steak;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import kr.inode.tbon.TBONToken;
 import kr.inode.tbon.mapper.TBONMapper;
 
 public class SteakObjectTypesTest {
+	/**
+	 * length of shared buffer of parser.
+	 */
+	private static int sharedBufferSize(SteakParser parser) throws ReflectiveOperationException {
+		final Field field = SteakParser.class.getDeclaredField("sharedBuffer");
+		field.setAccessible(true);
+		return ((byte[]) field.get(parser)).length;
+	}
+
 	@Test
 	public void testDate() throws IOException {
 		TBONMapper mapper = new TBONMapper(new SteakFactory());
@@ -103,6 +119,33 @@ public class SteakObjectTypesTest {
 		}
 	}
 
+	@Test
+	public void testSpillWithoutGrowth() throws Exception {
+		final byte[] content = new byte[2 * 1024 * 1024];
+		new Random(content.length).nextBytes(content);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+			generator.writeStartArray(2);
+			generator.write(content);
+			generator.write(Channels.newChannel(new ByteArrayInputStream(content)));
+			generator.writeEndArray();
+		}
+
+		final int initial = sharedBufferSize(new SteakParser());
+		final SteakParser parser = new SteakParser(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+		Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+		for (int i = 0; i < 2; ++i) {
+			Assertions.assertEquals(TBONToken.Octet, parser.nextToken());
+			final ByteArrayOutputStream spill = new ByteArrayOutputStream();
+			parser.readOctet(spill);
+			Assertions.assertArrayEquals(content, spill.toByteArray());
+		}
+		Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		// buffers of the parser and of later parsers are not grown to size of octet
+		Assertions.assertEquals(initial, sharedBufferSize(parser));
+		Assertions.assertEquals(initial, sharedBufferSize(new SteakParser()));
+	}
+
 	@Test
 	public void testString() throws IOException {
 		TBONMapper mapper = new TBONMapper(new SteakFactory());
@@ -123,4 +166,42 @@ public class SteakObjectTypesTest {
 			}
 		}
 	}
+
+	@Test
+	public void testStringEncoding() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		String[] targets = { "a", "ABCDEFGHIJKLMNOPQRST", "가나다라마바사아자차카타파하가나다라마바", "\ud83e\udd69 steak",
+				"unpaired \ud83e high", "unpaired \udd69 low", "é".repeat(5000) + "ABC".repeat(3000) };
+		for (String target : targets) {
+			try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+				mapper.writeTo(out, target);
+
+				byte[] array = out.toByteArray();
+				String value = mapper.readFrom(new ByteArrayInputStream(array));
+				Assertions.assertEquals(new String(target.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+						value);
+			}
+		}
+	}
+
+	@Test
+	public void testObjectKeys() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("ascii", 1);
+			map.put("한글", 2);
+			mapper.writeTo(out, map);
+
+			byte[] array = out.toByteArray();
+			Map<String, Object> first = mapper.readFrom(new ByteArrayInputStream(array));
+			Map<String, Object> second = mapper.readFrom(new ByteArrayInputStream(array));
+			Assertions.assertEquals(map, first);
+
+			Iterator<String> it = second.keySet().iterator();
+			for (String key : first.keySet()) {
+				Assertions.assertSame(key, it.next());
+			}
+		}
+	}
 }
@@ -3,10 +3,18 @@ package kr.inode.tbon.steak;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
 import kr.inode.tbon.mapper.TBONMapper;
 
 public class SteakPOJOTest {
@@ -23,6 +31,47 @@ public class SteakPOJOTest {
 		}
 	}
 
+	public static class Q extends P {
+		private int c;
+
+		public int getC() {
+			return c;
+		}
+
+		public void setC(int c) {
+			this.c = c;
+		}
+	}
+
+	static class HiddenBase {
+		public String hidden;
+	}
+
+	public static class Partial extends HiddenBase {
+		public String name;
+	}
+
+	@Test
+	public void testInaccessibleSetter() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+				generator.writeCustomType(Partial.class.getName());
+				generator.writeStartObject(2);
+				generator.write("hidden");
+				generator.write("skipped");
+				generator.write("name");
+				generator.write("bound");
+				generator.writeEndObject();
+			}
+
+			// field of a non-public class cannot be set, other properties are still set
+			Partial r = mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+			Assertions.assertEquals("bound", r.name);
+			Assertions.assertNull(r.hidden);
+		}
+	}
+
 	@Test
 	public void testPOJO() throws IOException {
 		TBONMapper mapper = new TBONMapper(new SteakFactory());
@@ -46,4 +95,86 @@ public class SteakPOJOTest {
 
 	}
 
+	public enum Level {
+		LOW, HIGH {
+			@Override
+			public String toString() {
+				return "high";
+			}
+		}
+	}
+
+	@Test
+	public void testEnum() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			// getters of Enum are not properties
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("unit", TimeUnit.SECONDS);
+			map.put("level", Level.HIGH);
+			mapper.writeTo(out, map);
+
+			try (TBONParser parser = new SteakFactory().createParser(new ByteArrayInputStream(out.toByteArray()))) {
+				Assertions.assertEquals(TBONToken.Object, parser.nextToken());
+				parser.next();
+				Assertions.assertEquals("unit", parser.readString());
+				Assertions.assertEquals(TBONToken.CustomType, parser.nextToken());
+				Assertions.assertEquals(TBONToken.Object, parser.nextToken());
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+				parser.next();
+				Assertions.assertEquals("level", parser.readString());
+				Assertions.assertEquals(TBONToken.CustomType, parser.nextToken());
+				Assertions.assertEquals(TBONToken.Object, parser.nextToken());
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+			}
+		}
+	}
+
+	@Test
+	public void testInheritedPOJO() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			Q q = new Q();
+			q.a = "A";
+			q.setB("B");
+			q.setC(3);
+			mapper.writeTo(out, q);
+			mapper.writeTo(out, q);
+
+			byte[] array = out.toByteArray();
+			Assertions.assertEquals(array.length / 2, array.length - array.length / 2);
+			try (ByteArrayInputStream in = new ByteArrayInputStream(array, 0, array.length / 2)) {
+				Q r = mapper.readFrom(in);
+				Assertions.assertEquals("A", r.a);
+				Assertions.assertEquals("B", r.getB());
+				Assertions.assertEquals(3, r.getC());
+			}
+		}
+	}
+
+	@Test
+	public void testPOJOList() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			List<P> list = new ArrayList<>();
+			for (int i = 0; i < 10; ++i) {
+				P p = new P();
+				p.a = "a" + i;
+				p.setB(i % 2 == 0 ? null : "b" + i);
+				list.add(p);
+			}
+			mapper.writeTo(out, list);
+
+			byte[] array = out.toByteArray();
+			try (ByteArrayInputStream in = new ByteArrayInputStream(array)) {
+				List<P> r = mapper.readFrom(in);
+				Assertions.assertEquals(10, r.size());
+				for (int i = 0; i < 10; ++i) {
+					Assertions.assertEquals("a" + i, r.get(i).a);
+					Assertions.assertEquals(i % 2 == 0 ? null : "b" + i, r.get(i).getB());
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,151 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONToken;
+import kr.inode.tbon.mapper.TBONMapper;
+
+public class SteakPrimitiveArrayTest {
+	private static <T> T roundTrip(Object value) throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			mapper.writeTo(out, value);
+
+			try (ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray())) {
+				return mapper.readFrom(in);
+			}
+		}
+	}
+
+	@Test
+	public void testBooleanArray() throws IOException {
+		boolean[] value = { true, false, false, true };
+		Assertions.assertArrayEquals(value, SteakPrimitiveArrayTest.<boolean[]>roundTrip(value));
+	}
+
+	@Test
+	public void testShortArray() throws IOException {
+		short[] value = { 0, 1, -1, Short.MAX_VALUE, Short.MIN_VALUE };
+		Assertions.assertArrayEquals(value, SteakPrimitiveArrayTest.<short[]>roundTrip(value));
+	}
+
+	@Test
+	public void testIntArray() throws IOException {
+		int[] value = { 0, 1, -1, 63, -64, 0x1fffff, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		Assertions.assertArrayEquals(value, SteakPrimitiveArrayTest.<int[]>roundTrip(value));
+	}
+
+	@Test
+	public void testLongArray() throws IOException {
+		long[] value = { 0L, 1L, -1L, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+		Assertions.assertArrayEquals(value, SteakPrimitiveArrayTest.<long[]>roundTrip(value));
+	}
+
+	@Test
+	public void testFloatArray() throws IOException {
+		float[] value = { 0f, -1.5f, Float.MAX_VALUE, Float.NaN, Float.NEGATIVE_INFINITY };
+		Assertions.assertArrayEquals(value, SteakPrimitiveArrayTest.<float[]>roundTrip(value));
+	}
+
+	@Test
+	public void testCharArray() throws IOException {
+		char[] value = "가나다ABC\u0000\uffff".toCharArray();
+		Assertions.assertArrayEquals(value, SteakPrimitiveArrayTest.<char[]>roundTrip(value));
+	}
+
+	@Test
+	public void testLargeDoubleArray() throws IOException {
+		// larger than parser buffer
+		double[] value = new double[5000];
+		Random random = new Random(5000);
+		for (int i = 0; i < value.length; ++i) {
+			value[i] = random.nextDouble();
+		}
+		Assertions.assertArrayEquals(value, SteakPrimitiveArrayTest.<double[]>roundTrip(value));
+	}
+
+	@Test
+	public void testTokens() throws IOException {
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+				generator.writeStartArray(2);
+				generator.writeStartPrimitiveArray(long.class, 3);
+				generator.write(1L);
+				generator.write(-2L);
+				generator.write(3L);
+				generator.writeEndArray();
+				generator.writeStartPrimitiveArray(int.class, 5);
+				for (int i = 0; i < 5; ++i) {
+					generator.write(i * 1000);
+				}
+				generator.writeEndArray();
+				generator.writeEndArray();
+			}
+
+			try (SteakParser parser = new SteakParser(
+					Channels.newChannel(new ByteArrayInputStream(out.toByteArray())))) {
+				Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+
+				Assertions.assertEquals(TBONToken.PrimitiveArrayOfLong, parser.nextToken());
+				Assertions.assertEquals(3, parser.getElementCount());
+				Assertions.assertEquals(TBONToken.Int64, parser.nextToken());
+				Assertions.assertEquals(1L, parser.getLong());
+				Assertions.assertArrayEquals(new long[] { -2L, 3L }, parser.readLongArray());
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.currentToken());
+
+				Assertions.assertEquals(TBONToken.PrimitiveArrayOfInt, parser.nextToken());
+				int[] dst = new int[3];
+				Assertions.assertEquals(3, parser.readArray(dst, 0, 3));
+				Assertions.assertArrayEquals(new int[] { 0, 1000, 2000 }, dst);
+				Assertions.assertEquals(2, parser.readArray(dst, 1, 2));
+				Assertions.assertArrayEquals(new int[] { 0, 3000, 4000 }, dst);
+				Assertions.assertEquals(-1, parser.readArray(dst, 0, 3));
+				// ended array is an array of int
+				Assertions.assertThrows(IOException.class, () -> parser.readArray(new long[3], 0, 3));
+
+				// end of enclosing array is not an end of primitive array
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+				Assertions.assertThrows(IOException.class, () -> parser.readArray(dst, 0, 3));
+			}
+		}
+	}
+
+	@Test
+	public void testBulkWrite() throws IOException {
+		long[] longs = new long[3000];
+		for (int i = 0; i < longs.length; ++i) {
+			longs[i] = (i % 2 == 0 ? -1L : 1L) << (i % 64);
+		}
+		double[] doubles = { 1.0, 2.0, 3.0, 4.0 };
+
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+				generator.writeStartArray(3);
+				generator.write(longs);
+				generator.write(doubles, 1, 2);
+				generator.write(IntBuffer.wrap(new int[] { 7, 8, 9 }, 1, 2));
+				generator.writeEndArray();
+			}
+
+			try (SteakParser parser = new SteakParser(
+					Channels.newChannel(new ByteArrayInputStream(out.toByteArray())))) {
+				Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+				Assertions.assertEquals(TBONToken.PrimitiveArrayOfLong, parser.nextToken());
+				Assertions.assertArrayEquals(longs, parser.readLongArray());
+				Assertions.assertEquals(TBONToken.PrimitiveArrayOfDouble, parser.nextToken());
+				Assertions.assertArrayEquals(new double[] { 2.0, 3.0 }, parser.readDoubleArray());
+				Assertions.assertEquals(TBONToken.PrimitiveArrayOfInt, parser.nextToken());
+				Assertions.assertArrayEquals(new int[] { 8, 9 }, parser.readIntArray());
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.mapper.TBONMapper;
+import kr.inode.tbon.mapper.TBONProjection;
+
+public class SteakProjectionTest {
+	private static Map<String, Object> order() {
+		List<Object> items = new ArrayList<>();
+		for (int i = 0; i < 3; ++i) {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("sku", "sku-" + i);
+			item.put("count", i);
+			item.put("image", new byte[10000]);
+			items.add(item);
+		}
+		Map<String, Object> order = new LinkedHashMap<>();
+		order.put("id", 42L);
+		order.put("memo", "가나다".repeat(1000));
+		order.put("items", items);
+		order.put("scores", new int[] { 10, 20, 30 });
+		Map<String, Object> root = new LinkedHashMap<>();
+		root.put("order", order);
+		root.put("customer", "someone");
+		return root;
+	}
+
+	@Test
+	public void testProjection() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, order());
+		byte[] bytes = out.toByteArray();
+
+		TBONProjection projection = TBONProjection.of("order.items[*].sku", "order.id", "order.scores[1]");
+		Map<String, Object> value = mapper.readFrom(new ByteArrayInputStream(bytes), projection);
+
+		Map<String, Object> expectedOrder = new LinkedHashMap<>();
+		expectedOrder.put("id", 42L);
+		List<Object> items = new ArrayList<>();
+		for (int i = 0; i < 3; ++i) {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("sku", "sku-" + i);
+			items.add(item);
+		}
+		expectedOrder.put("items", items);
+		expectedOrder.put("scores", Arrays.asList((Object) 20));
+		Map<String, Object> expected = new LinkedHashMap<>();
+		expected.put("order", expectedOrder);
+		Assertions.assertEquals(expected, value);
+
+		value = mapper.readFrom(ByteBuffer.wrap(bytes), TBONProjection.of("order.items[1]", "*.memo.nothing"));
+		@SuppressWarnings("unchecked")
+		Map<String, Object> item = (Map<String, Object>) ((List<?>) ((Map<?, ?>) value.get("order")).get("items"))
+				.get(0);
+		Assertions.assertEquals("sku-1", item.get("sku"));
+		Assertions.assertEquals(10000, ((byte[]) item.get("image")).length);
+		Assertions.assertEquals(1, ((Map<?, ?>) value.get("order")).size());
+
+		// structures without matched children are left out
+		value = mapper.readFrom(ByteBuffer.wrap(bytes), TBONProjection.of("order.items[5].sku", "order.scores[7]",
+				"order.missing", "customer"));
+		Assertions.assertEquals(Collections.singletonMap("customer", "someone"), value);
+		Assertions.assertNull(mapper.readFrom(ByteBuffer.wrap(bytes), TBONProjection.of("order.items[*].missing")));
+
+		// input ended in a structure
+		Assertions.assertThrows(IOException.class, () -> mapper.readFrom(
+				new ByteArrayInputStream(bytes, 0, bytes.length - 10), TBONProjection.of("order.id")));
+	}
+
+	@Test
+	public void testInvalidPath() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TBONProjection.of(""));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TBONProjection.of("a..b"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TBONProjection.of("a[1"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TBONProjection.of("a[x]"));
+	}
+}
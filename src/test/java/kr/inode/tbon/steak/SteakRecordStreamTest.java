@@ -0,0 +1,110 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.mapper.TBONMapper;
+import kr.inode.tbon.mapper.TBONRecordReader;
+import kr.inode.tbon.mapper.TBONRecordWriter;
+
+public class SteakRecordStreamTest {
+	private static Map<String, Object> event(int i) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("seq", i);
+		map.put("name", "event-" + i);
+		map.put("values", new long[] { i, -i, (long) i << 40 });
+		return map;
+	}
+
+	@Test
+	public void testTruncatedInput() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		List<Object> list = new ArrayList<>();
+		list.add("first");
+		list.add(2L);
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("key", "value");
+		map.put("list", list);
+		SteakPOJOTest.P pojo = new SteakPOJOTest.P();
+		pojo.a = "a";
+		pojo.setB("b");
+
+		for (Object value : new Object[] { list, map, pojo }) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			mapper.writeTo(out, value);
+			byte[] bytes = out.toByteArray();
+			// input ended after header, in a structure is not a partial value
+			for (int length = 6; length < bytes.length; ++length) {
+				int n = length;
+				Assertions.assertThrows(IOException.class,
+						() -> mapper.readFrom(new ByteArrayInputStream(bytes, 0, n)), value + " of " + n);
+				Assertions.assertThrows(IOException.class, () -> mapper.readFrom(ByteBuffer.wrap(bytes, 0, n)),
+						value + " of " + n);
+			}
+		}
+	}
+
+	@Test
+	public void testRecords() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (TBONRecordWriter writer = mapper.writeRecords(out)) {
+			for (int i = 0; i < 1000; ++i) {
+				writer.append(event(i));
+				if (i == 0) {
+					writer.flush();
+					Assertions.assertTrue(out.size() > 5);
+				}
+			}
+			writer.append(null);
+			writer.append("last");
+		}
+
+		byte[] bytes = out.toByteArray();
+		try (TBONRecordReader<Object> reader = mapper.readRecords(new ByteArrayInputStream(bytes))) {
+			for (int i = 0; i < 1000; ++i) {
+				Assertions.assertTrue(reader.hasNext());
+				@SuppressWarnings("unchecked")
+				Map<String, Object> value = (Map<String, Object>) reader.next();
+				Assertions.assertEquals(i, value.get("seq"));
+				Assertions.assertEquals("event-" + i, value.get("name"));
+				Assertions.assertArrayEquals((long[]) event(i).get("values"), (long[]) value.get("values"));
+			}
+			Assertions.assertNull(reader.next());
+			Assertions.assertEquals("last", reader.next());
+			Assertions.assertFalse(reader.hasNext());
+			Assertions.assertThrows(NoSuchElementException.class, reader::next);
+		}
+
+		int count = 0;
+		try (TBONRecordReader<Object> reader = mapper.readRecords(ByteBuffer.wrap(bytes))) {
+			while (reader.hasNext()) {
+				reader.next();
+				++count;
+			}
+		}
+		Assertions.assertEquals(1002, count);
+	}
+
+	@Test
+	public void testEmptyStream() throws IOException {
+		TBONMapper mapper = new TBONMapper(new SteakFactory());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeRecords(out).close();
+
+		try (TBONRecordReader<Object> reader = mapper.readRecords(new ByteArrayInputStream(out.toByteArray()))) {
+			Assertions.assertFalse(reader.hasNext());
+		}
+		Assertions.assertThrows(IOException.class, () -> mapper.readFrom(new ByteArrayInputStream(out.toByteArray())));
+	}
+}
@@ -0,0 +1,175 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+import kr.inode.tbon.mapper.CyclePolicy;
+import kr.inode.tbon.mapper.TBONMapper;
+
+public class SteakReferenceTest {
+	private static byte[] records(boolean references) throws IOException {
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out), false, references)) {
+				generator.writeStartArray(100);
+				for (int i = 0; i < 100; ++i) {
+					generator.writeStartObject(3);
+					generator.write("host");
+					generator.write("host-" + i % 4 + ".example.com");
+					generator.write("level");
+					generator.write(i % 2 == 0 ? "INFO" : "WARN");
+					generator.write("id");
+					generator.write(i);
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+			}
+			return out.toByteArray();
+		}
+	}
+
+	@Test
+	public void testStringReference() throws IOException {
+		final byte[] plain = records(false);
+		final byte[] referred = records(true);
+		Assertions.assertTrue(referred.length * 2 < plain.length, referred.length + " / " + plain.length);
+		Assertions.assertEquals(SteakFactory.HEADER_REFERENCES, referred[4]);
+
+		try (TBONParser parser = new SteakFactory().createParser(new ByteArrayInputStream(referred))) {
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			Assertions.assertEquals(0, parser.getReferenceId());
+			for (int i = 0; i < 100; ++i) {
+				Assertions.assertEquals(TBONToken.Object, parser.nextToken());
+				Assertions.assertEquals(i + 1, parser.getReferenceId());
+				parser.next();
+				Assertions.assertEquals("host", parser.readKey());
+				if (i % 3 == 0) {
+					// skipped strings are numbered also
+					parser.skipValue();
+				} else {
+					Assertions.assertEquals(TBONToken.String, parser.nextToken());
+					Assertions.assertEquals("host-" + i % 4 + ".example.com", parser.readString());
+				}
+				parser.next();
+				Assertions.assertEquals("level", parser.readKey());
+				parser.next();
+				Assertions.assertEquals(i % 2 == 0 ? "INFO" : "WARN", parser.readString());
+				parser.next();
+				Assertions.assertEquals("id", parser.readKey());
+				Assertions.assertEquals(TBONToken.Int32, parser.nextToken());
+				Assertions.assertEquals(i, parser.getInt());
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+			}
+			Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		}
+
+		// skipped structure keeps numbering
+		try (TBONParser parser = new SteakFactory().createParser(new ByteArrayInputStream(referred))) {
+			parser.next();
+			parser.skipValue();
+			parser.next();
+			parser.next();
+			Assertions.assertEquals("host", parser.readKey());
+			parser.next();
+			Assertions.assertEquals("host-1.example.com", parser.readString());
+		}
+	}
+
+	@Test
+	public void testObjectReference() throws IOException {
+		final byte[] bytes;
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out), false, true)) {
+				generator.writeStartArray(2);
+				Assertions.assertEquals(1, generator.nextReferenceId());
+				generator.writeStartArray(0);
+				generator.writeEndArray();
+				generator.writeReference(1);
+				generator.writeEndArray();
+				Assertions.assertThrows(IOException.class, () -> generator.writeReference(2));
+			}
+			bytes = out.toByteArray();
+		}
+
+		try (TBONParser parser = new SteakFactory().createParser(new ByteArrayInputStream(bytes))) {
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			Assertions.assertEquals(1, parser.getReferenceId());
+			Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+			Assertions.assertEquals(TBONToken.Reference, parser.nextToken());
+			Assertions.assertEquals(1, parser.getReferenceId());
+			Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		}
+
+		// reference is not allowed without header flag
+		bytes[4] = 0;
+		try (TBONParser parser = new SteakFactory().createParser(new ByteArrayInputStream(bytes))) {
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			Assertions.assertEquals(-1, parser.getReferenceId());
+			parser.next();
+			parser.next();
+			Assertions.assertThrows(IOException.class, () -> parser.next());
+		}
+	}
+
+	@Test
+	public void testPrimitiveArrayNotNumbered() throws IOException {
+		final byte[] bytes;
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out), false, true)) {
+				generator.writeStartArray(3);
+				generator.write(new int[] { 1, 2 });
+				Assertions.assertEquals(1, generator.nextReferenceId());
+				generator.writeStartArray(1);
+				generator.write(new double[] { 3.0 });
+				generator.writeEndArray();
+				generator.writeReference(1);
+				generator.writeEndArray();
+			}
+			bytes = out.toByteArray();
+		}
+
+		try (TBONParser parser = new SteakFactory().createParser(new ByteArrayInputStream(bytes))) {
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			Assertions.assertEquals(TBONToken.PrimitiveArrayOfInt, parser.nextToken());
+			Assertions.assertArrayEquals(new int[] { 1, 2 }, parser.readIntArray());
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			Assertions.assertEquals(1, parser.getReferenceId());
+			parser.skipChildren();
+			Assertions.assertEquals(TBONToken.Reference, parser.nextToken());
+			Assertions.assertEquals(1, parser.getReferenceId());
+		}
+
+		// primitive arrays before and inside shared structures
+		final TBONMapper mapper = new TBONMapper(new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, true), 1);
+		mapper.setCyclePolicy(CyclePolicy.REFERENCE);
+		final int[] ints = { 1, 2 };
+		final Map<String, Object> shared = new LinkedHashMap<>();
+		shared.put("ints", ints);
+		shared.put("doubles", new double[] { 3.0 });
+		final List<Object> list = new ArrayList<>();
+		list.add(ints);
+		list.add(shared);
+		list.add(shared);
+		list.add(ints);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeTo(out, list);
+		final List<?> read = mapper.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		Assertions.assertEquals(4, read.size());
+		Assertions.assertArrayEquals(ints, (int[]) read.get(0));
+		Assertions.assertArrayEquals(ints, (int[]) ((Map<?, ?>) read.get(1)).get("ints"));
+		Assertions.assertSame(read.get(1), read.get(2));
+		Assertions.assertArrayEquals(ints, (int[]) read.get(3));
+	}
+}
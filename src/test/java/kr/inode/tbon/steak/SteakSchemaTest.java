@@ -0,0 +1,137 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+import kr.inode.tbon.mapper.TBONMapper;
+import kr.inode.tbon.mapper.TBONProjection;
+
+public class SteakSchemaTest {
+	public static class Item {
+		public String name;
+		public int count;
+		public Item child;
+	}
+
+	private static List<Item> items() {
+		final List<Item> items = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i) {
+			final Item item = new Item();
+			item.name = "item-" + i;
+			item.count = i;
+			if (i % 10 == 0) {
+				// another key set, without child of child
+				item.child = new Item();
+				item.child.name = "child-" + i;
+			}
+			items.add(item);
+		}
+		return items;
+	}
+
+	private static byte[] write(SteakFactory factory, Object value) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new TBONMapper(factory).writeTo(out, value);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testSchema() throws IOException {
+		final List<Item> items = items();
+		final byte[] plain = write(new SteakFactory(), items);
+		final byte[] schema = write(new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, false, true), items);
+		final byte[] both = write(new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, true, true), items);
+		// "name" and "count" keys are 11 bytes on each item
+		Assertions.assertTrue(plain.length - schema.length > 1000 * 10, schema.length + " / " + plain.length);
+		Assertions.assertTrue(both.length < schema.length, both.length + " / " + schema.length);
+
+		for (final byte[] bytes : new byte[][] { schema, both }) {
+			final List<Item> read = new TBONMapper().readFrom(new ByteArrayInputStream(bytes));
+			Assertions.assertEquals(items.size(), read.size());
+			for (int i = 0; i < items.size(); ++i) {
+				Assertions.assertEquals(items.get(i).name, read.get(i).name);
+				Assertions.assertEquals(items.get(i).count, read.get(i).count);
+				if (items.get(i).child == null) {
+					Assertions.assertNull(read.get(i).child);
+				} else {
+					Assertions.assertEquals(items.get(i).child.name, read.get(i).child.name);
+				}
+			}
+
+			// keys are given on projection and skip
+			final List<?> counts = new TBONMapper().readFrom(ByteBuffer.wrap(bytes), TBONProjection.of("[*].count"));
+			Assertions.assertEquals(items.size(), counts.size());
+			Assertions.assertEquals(999, ((Map<?, ?>) counts.get(999)).get("count"));
+		}
+	}
+
+	@Test
+	public void testSkipAndFeed() throws IOException {
+		final byte[] bytes = write(new SteakFactory(SteakFactory.DEFAULT_KEY_CACHE_SIZE, true, true), items());
+
+		try (TBONParser parser = new SteakFactory().createParser(ByteBuffer.wrap(bytes))) {
+			Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+			for (int i = 0; i < 1000; ++i) {
+				Assertions.assertEquals(TBONToken.CustomType, parser.nextToken());
+				Assertions.assertEquals(TBONToken.Object, parser.nextToken());
+				parser.next();
+				Assertions.assertEquals("name", parser.readKey());
+				parser.next();
+				Assertions.assertEquals("item-" + i, parser.readString());
+				parser.next();
+				Assertions.assertEquals("count", parser.readKey());
+				Assertions.assertEquals(TBONToken.Int32, parser.nextToken());
+				Assertions.assertEquals(i, parser.getInt());
+				if (i % 2 == 0) {
+					parser.skipChildren();
+				}
+				if (i % 10 == 0) {
+					parser.next();
+					Assertions.assertEquals("child", parser.readKey());
+					parser.skipValue();
+				}
+				Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+				if (i == 500) {
+					parser.skipValue();
+					++i;
+				}
+			}
+			Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		}
+
+		// schema definitions are fed in pieces
+		final List<String> expected = new ArrayList<>();
+		try (TBONParser parser = new SteakFactory().createParser(ByteBuffer.wrap(bytes))) {
+			while (parser.next()) {
+				expected.add(parser.currentToken() == TBONToken.String ? parser.readString()
+						: parser.currentToken().toString());
+			}
+		}
+		final List<String> actual = new ArrayList<>();
+		try (SteakParser parser = new SteakParser()) {
+			int fed = 0;
+			while (fed < bytes.length || parser.currentToken() != TBONToken.NotAvailable) {
+				if (parser.next()) {
+					actual.add(parser.currentToken() == TBONToken.String ? parser.readString()
+							: parser.currentToken().toString());
+				} else if (fed < bytes.length) {
+					parser.feed(ByteBuffer.wrap(bytes, fed, Math.min(3, bytes.length - fed)));
+					fed += 3;
+				} else {
+					break;
+				}
+			}
+		}
+		Assertions.assertEquals(expected, actual);
+	}
+}
@@ -0,0 +1,111 @@
+package kr.inode.tbon.steak;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import kr.inode.tbon.TBONParser;
+import kr.inode.tbon.TBONToken;
+
+public class SteakSkipTest {
+	private static byte[] sample() throws IOException {
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			try (SteakGenerator generator = new SteakGenerator(Channels.newChannel(out))) {
+				generator.writeStartArray();
+				// skipped by skipValue
+				generator.writeStartObject(3);
+				generator.write("nested");
+				generator.writeStartArray(6);
+				generator.write(-123456);
+				generator.write(new BigInteger("123456789012345678901234567890"));
+				generator.write(new BigDecimal("-1234.5678"));
+				generator.write(new Date());
+				generator.write(new long[] { 1L, -1L, Long.MIN_VALUE });
+				generator.write(new double[] { 1.0, 2.0 });
+				generator.writeEndArray();
+				generator.write("octet");
+				generator.write(new byte[50000]);
+				generator.write("stream");
+				generator.write(Channels.newChannel(new ByteArrayInputStream(new byte[20000])));
+				generator.writeEndObject();
+				generator.write("first");
+				// skipped by skipChildren
+				generator.writeCustomType("kr.inode.Sample");
+				generator.writeStartObject(1);
+				generator.write("flag");
+				generator.write(true);
+				generator.writeEndObject();
+				generator.write("second");
+				generator.write(new int[] { 1, 2, 3 });
+				generator.write("가나다".repeat(5000));
+				generator.write("third");
+				generator.writeEndArray();
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static void walk(TBONParser parser) throws IOException {
+		Assertions.assertEquals(TBONToken.Array, parser.nextToken());
+		Assertions.assertTrue(parser.skipValue());
+		Assertions.assertEquals(TBONToken.EndOfStructure, parser.currentToken());
+		Assertions.assertEquals(TBONToken.String, parser.nextToken());
+		Assertions.assertEquals("first", parser.readString());
+
+		Assertions.assertEquals(TBONToken.CustomType, parser.nextToken());
+		parser.skipChildren();
+		Assertions.assertEquals(TBONToken.String, parser.nextToken());
+		Assertions.assertEquals("second", parser.readString());
+
+		Assertions.assertEquals(TBONToken.PrimitiveArrayOfInt, parser.nextToken());
+		parser.skipChildren();
+		Assertions.assertEquals(TBONToken.EndOfStructure, parser.currentToken());
+
+		// unread string is skipped by next
+		Assertions.assertEquals(TBONToken.String, parser.nextToken());
+		Assertions.assertEquals(TBONToken.String, parser.nextToken());
+		Assertions.assertEquals("third", parser.readString());
+		Assertions.assertEquals(TBONToken.EndOfStructure, parser.nextToken());
+		Assertions.assertFalse(parser.next());
+	}
+
+	@Test
+	public void testSkipOnStream() throws IOException {
+		try (SteakParser parser = new SteakParser(Channels.newChannel(new ByteArrayInputStream(sample())))) {
+			walk(parser);
+		}
+	}
+
+	@Test
+	public void testSkipOnBuffer() throws IOException {
+		try (SteakParser parser = new SteakParser(ByteBuffer.wrap(sample()))) {
+			walk(parser);
+		}
+	}
+
+	@Test
+	public void testSkipOnFile() throws IOException {
+		Path file = Files.createTempFile("tbon", ".tbon");
+		try {
+			Files.write(file, sample());
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+					SteakParser parser = new SteakParser(channel)) {
+				walk(parser);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}